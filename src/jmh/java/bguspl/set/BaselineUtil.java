@@ -0,0 +1,88 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The original implementation of the set utilities (before the packed feature table and the set completion search),
+ * kept as a baseline for the benchmarks.
+ */
+public class BaselineUtil {
+
+    private final Config config;
+
+    public BaselineUtil(Config config) {
+        this.config = config;
+    }
+
+    private void cardToFeatures(int card, int[] features) {
+        for (int i = config.featureCount - 1; i >= 0; --i) {
+            features[i] = card % config.featureSize;
+            card /= config.featureSize;
+        }
+    }
+
+    public int[] cardToFeatures(int card) {
+        int[] features = new int[config.featureCount];
+        cardToFeatures(card, features);
+        return features;
+    }
+
+    public int[][] cardsToFeatures(int[] cards) {
+        int[][] features = new int[cards.length][config.featureCount];
+        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        return features;
+    }
+
+    public boolean testSet(int[] cards) {
+        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        for (int i = 0; i < config.featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+
+            // check if this features is sameSame in all cards
+            for (int j = 1; j < features.length; ++j)
+                if (features[0][i] != features[j][i]) {
+                    sameSame = false;
+                    break;
+                }
+
+            // check if this feature is butDifferent in all cards
+            for (int j = 1; j < features.length; ++j)
+                for (int k = j; k < features.length; ++k)
+                    if (features[j - 1][i] == features[k][i]) {
+                        butDifferent = false;
+                        break;
+                    }
+
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    public List<int[]> findSets(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int n = deck.size();
+        int r = config.featureSize;
+        int[] combination = new int[r];
+
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < deck.size()) {
+            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+            if (testSet(cards)) {
+                sets.add(cards);
+                if (sets.size() >= count) return sets;
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+}
@@ -0,0 +1,88 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks of testing a claim of three cards with the primitive testSet(first, second, third), against the original
+ * implementation (BaselineUtil). Claims are three cards only when there are 3 values per feature, so unlike
+ * UtilBenchmark the feature size is not a parameter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreeCardSetBenchmark {
+
+    /**
+     * The number of different card combinations the benchmarks cycle through.
+     */
+    private static final int CLAIMS = 1024;
+
+    @Param({"4", "5", "6"})
+    public String featureCount;
+
+    private Util util;
+    private BaselineUtil baseline;
+    private int[][] claims;
+    private int claim;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", featureCount);
+        properties.put("FeatureSize", "3");
+        properties.put("LogLevel", "OFF");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = new UtilImpl(config);
+        baseline = new BaselineUtil(config);
+
+        // half of the claims are legal sets
+        Random random = new Random(0);
+        List<Integer> deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card)
+            deck.add(card);
+        Collections.shuffle(deck, random);
+        List<int[]> sets = util.findSets(deck, CLAIMS / 2);
+        claims = new int[CLAIMS][];
+        for (int i = 0; i < CLAIMS; ++i) {
+            if (i % 2 == 0 && !sets.isEmpty()) claims[i] = sets.get(i / 2 % sets.size());
+            else claims[i] = random.ints(3, 0, config.deckSize).toArray();
+        }
+    }
+
+    private int[] nextClaim() {
+        claim = (claim + 1) & (CLAIMS - 1);
+        return claims[claim];
+    }
+
+    @Benchmark
+    public boolean testSetPrimitive() {
+        int[] cards = nextClaim();
+        return util.testSet(cards[0], cards[1], cards[2]);
+    }
+
+    @Benchmark
+    public boolean testSetPrimitiveBaseline() {
+        return baseline.testSet(nextClaim());
+    }
+}
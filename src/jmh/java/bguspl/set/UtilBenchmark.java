@@ -0,0 +1,132 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks of the set utilities (UtilImpl) against the original implementation (BaselineUtil), over different
+ * card and board configurations. Testing three cards with the primitive testSet is in ThreeCardSetBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    /**
+     * The number of different card combinations the testSet benchmarks cycle through.
+     */
+    private static final int CLAIMS = 1024;
+
+    @Param({"4", "5", "6"})
+    public String featureCount;
+
+    @Param({"3", "4"})
+    public String featureSize;
+
+    @Param({"12", "21"})
+    public int boardSize;
+
+    private Util util;
+    private BaselineUtil baseline;
+    private List<Integer> deck;
+    private List<Integer> board;
+    private int[][] claims;
+    private int claim;
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", featureCount);
+        properties.put("FeatureSize", featureSize);
+        properties.put("LogLevel", "OFF");
+        Config config = new Config(Logger.getAnonymousLogger(), properties);
+        util = new UtilImpl(config);
+        baseline = new BaselineUtil(config);
+
+        Random random = new Random(0);
+        deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card)
+            deck.add(card);
+        Collections.shuffle(deck, random);
+        board = new ArrayList<>(deck.subList(0, Math.min(boardSize, deck.size())));
+
+        // half of the claims are legal sets
+        List<int[]> sets = util.findSets(deck, CLAIMS / 2);
+        claims = new int[CLAIMS][];
+        for (int i = 0; i < CLAIMS; ++i) {
+            if (i % 2 == 0 && !sets.isEmpty()) claims[i] = sets.get(i / 2 % sets.size());
+            else claims[i] = random.ints(config.featureSize, 0, config.deckSize).toArray();
+        }
+    }
+
+    private int[] nextClaim() {
+        claim = (claim + 1) & (CLAIMS - 1);
+        return claims[claim];
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(nextClaim());
+    }
+
+    @Benchmark
+    public boolean testSetBaseline() {
+        return baseline.testSet(nextClaim());
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(nextClaim());
+    }
+
+    @Benchmark
+    public int[][] cardsToFeaturesBaseline() {
+        return baseline.cardsToFeatures(nextClaim());
+    }
+
+    /**
+     * All the sets on the board, as in Table.hints.
+     */
+    @Benchmark
+    public List<int[]> findSetsOnBoard() {
+        return util.findSets(board, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<int[]> findSetsOnBoardBaseline() {
+        return baseline.findSets(board, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Whether the whole deck has a set, as in the end of game check.
+     */
+    @Benchmark
+    public List<int[]> findSetInDeck() {
+        return util.findSets(deck, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findSetInDeckBaseline() {
+        return baseline.findSets(deck, 1);
+    }
+}
@@ -0,0 +1,98 @@
+package bguspl.set;
+
+/**
+ * This interface is the source of time of the game, and the way its threads wait for time to pass or for events. The
+ * real clock uses the system time, the virtual clock runs in simulated time (see VirtualClock).
+ *
+ * The park and unpark methods follow LockSupport: a thread that was unparked before it parks does not block, and park
+ * returns early when the thread is interrupted (so callers re-check their condition in a loop).
+ */
+public interface Clock {
+
+    /**
+     * @return - the current time in milliseconds (as System.currentTimeMillis).
+     */
+    long currentTimeMillis();
+
+    /**
+     * @return - the current value of the high-resolution time source in nanoseconds (as System.nanoTime).
+     */
+    long nanoTime();
+
+    /**
+     * Blocks the current thread until it is unparked or interrupted, or until the deadline.
+     *
+     * @param blocker  - the object the thread is waiting for.
+     * @param deadline - the nanoTime to wake up at (Long.MAX_VALUE for none).
+     */
+    void parkUntilNanos(Object blocker, long deadline);
+
+    /**
+     * Unblocks a thread blocked in one of the park methods, or makes its next park return at once.
+     *
+     * @param thread - the thread (ignored if null).
+     */
+    void unpark(Thread thread);
+
+    /**
+     * Registers a thread that takes part in the game. It must be called before the thread is started (or by the thread
+     * itself, before it starts other threads).
+     *
+     * @param thread - the thread.
+     */
+    void register(Thread thread);
+
+    /**
+     * Unregisters the current thread once it is done taking part in the game.
+     */
+    void unregister();
+
+    /**
+     * Lets the other threads of the game catch up with the current time: in simulated time, blocks the current thread
+     * until all the other registered threads are parked (without advancing the time). Does nothing in real time.
+     */
+    default void settle() {}
+
+    /**
+     * Blocks the current thread until it is unparked or interrupted.
+     *
+     * @param blocker - the object the thread is waiting for.
+     */
+    default void park(Object blocker) {
+        parkUntilNanos(blocker, Long.MAX_VALUE);
+    }
+
+    /**
+     * Blocks the current thread until it is unparked or interrupted, or until the deadline.
+     *
+     * @param blocker  - the object the thread is waiting for.
+     * @param deadline - the time to wake up at in milliseconds (as currentTimeMillis).
+     */
+    default void parkUntil(Object blocker, long deadline) {
+        parkUntilNanos(blocker, nanoTime() + (deadline - currentTimeMillis()) * 1000000L);
+    }
+
+    /**
+     * Sleeps until the given nanoTime.
+     *
+     * @param deadline - the nanoTime to wake up at.
+     * @throws InterruptedException - if the thread is interrupted.
+     */
+    default void sleepUntilNanos(long deadline) throws InterruptedException {
+        while (nanoTime() < deadline) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            parkUntilNanos(this, deadline);
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    /**
+     * Sleeps for the given time (as Thread.sleep).
+     *
+     * @param millis - the time to sleep in milliseconds.
+     * @throws InterruptedException - if the thread is interrupted.
+     */
+    default void sleep(long millis) throws InterruptedException {
+        sleepUntilNanos(nanoTime() + millis * 1000000L);
+    }
+}
@@ -6,7 +6,11 @@ import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -51,6 +55,62 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * The number of key presses per second generated by each computer player (0 or less for no limit)
+     */
+    public final double computerKeysPerSecond;
+
+    /**
+     * True iff the game runs in simulated time (see VirtualClock) instead of real time
+     */
+    public final boolean virtualClock;
+
+    /**
+     * True iff the players and computer players run on virtual threads (if supported by the runtime)
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * True iff computer players claim the sets on the table (otherwise they press random keys)
+     */
+    public final boolean smartComputerPlayers;
+
+    /**
+     * The probability that a smart computer player goes for an actual set (otherwise it picks random cards)
+     */
+    public final double computerSkill;
+
+    /**
+     * The number of milliseconds a smart computer player waits after the table changes before it starts pressing keys
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * The seed for shuffling the deck
+     */
+    public final long seed;
+
+    /**
+     * The settings that change how the game plays (the given or default values as text), by property name. A
+     * recording keeps them, so the game is replayed with the same settings (see GameRecorder)
+     */
+    public final Map<String, String> gameSettings;
+
+    /**
+     * The file to record the game to (empty for no recording, see GameRecorder)
+     */
+    public final String recordFile;
+
+    /**
+     * The file to write the binary event journal to (empty for no journal, see EventJournal)
+     */
+    public final String journalFile;
+
+    /**
+     * The maximal number of events in the event journal
+     */
+    public final int journalCapacity;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -66,6 +126,16 @@ public class Config {
      */
     public final long turnTimeoutWarningMillis;
 
+    /**
+     * The number of milliseconds between updates of the timer display
+     */
+    public final long displayTickMillis;
+
+    /**
+     * The number of milliseconds between updates of the timer display while the turn timeout warning is displayed
+     */
+    public final long warningDisplayTickMillis;
+
     /**
      * The number of milliseconds a player gets frozen for when he scores a point
      */
@@ -77,7 +147,7 @@ public class Config {
     public final long pointFreezeMillis;
 
     /**
-     * The number of milliseconds to delay before removing/placing a card on the table
+     * The number of milliseconds to delay before showing a card removed/placed on the table (the game does not wait)
      */
     public final long tableDelayMillis;
 
@@ -155,7 +225,7 @@ public class Config {
      * @param filename - the name of the configuration file.
      * @return - a properties object with the configuration file contents.
      */
-    private static Properties loadProperties(String filename, Logger logger) {
+    static Properties loadProperties(String filename, Logger logger) {
 
         Properties properties = new Properties();
 
@@ -194,20 +264,36 @@ public class Config {
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
 
         // cards settings
-        featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
-        featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
+        Map<String, String> settings = new LinkedHashMap<>();
+        featureSize = Integer.parseInt(gameSetting(properties, settings, "FeatureSize", "3"));
+        featureCount = Integer.parseInt(gameSetting(properties, settings, "FeatureCount", "4"));
         deckSize = (int) Math.pow(featureSize, featureCount);
 
         // gameplay settings
         humanPlayers = Integer.parseInt(properties.getProperty("HumanPlayers", "2"));
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
+        computerKeysPerSecond = Double.parseDouble(properties.getProperty("ComputerKeysPerSecond", "10"));
+        virtualClock = properties.getProperty("Clock", "Real").trim().equalsIgnoreCase("Virtual");
+        virtualThreads = properties.getProperty("ThreadMode", "Platform").trim().equalsIgnoreCase("Virtual");
+        smartComputerPlayers = properties.getProperty("ComputerPlayerMode", "Random").trim().equalsIgnoreCase("Smart");
+        computerSkill = Double.parseDouble(properties.getProperty("ComputerSkill", "0.8"));
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "1")) * 1000.0);
+
+        String seedString = properties.getProperty("Seed", "").trim();
+        seed = seedString.isEmpty() ? new Random().nextLong() : Long.parseLong(seedString);
+        logger.info("using seed " + seed);
+        recordFile = properties.getProperty("RecordFile", "").trim();
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        journalCapacity = Integer.parseInt(properties.getProperty("JournalCapacity", "1000000").trim());
 
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
-        turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
-        turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
-        pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
-        penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
+        turnTimeoutMillis = (long) (Double.parseDouble(gameSetting(properties, settings, "TurnTimeoutSeconds", "60")) * 1000.0);
+        turnTimeoutWarningMillis = (long) (Double.parseDouble(gameSetting(properties, settings, "TurnTimeoutWarningSeconds", "60")) * 1000.0);
+        displayTickMillis = Math.max(1, (long) (Double.parseDouble(gameSetting(properties, settings, "DisplayTickSeconds", "1")) * 1000.0));
+        warningDisplayTickMillis = Math.max(1, (long) (Double.parseDouble(gameSetting(properties, settings, "WarningDisplayTickSeconds", "0.1")) * 1000.0));
+        pointFreezeMillis = (long) (Double.parseDouble(gameSetting(properties, settings, "PointFreezeSeconds", "1")) * 1000.0);
+        penaltyFreezeMillis = (long) (Double.parseDouble(gameSetting(properties, settings, "PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
@@ -216,9 +302,10 @@ public class Config {
         playerNames = new String[players];
         Arrays.setAll(playerNames, i -> i < names.length ? names[i].trim() : "Player " + (i + 1));
 
-        rows = Integer.parseInt(properties.getProperty("Rows", "3"));
-        columns = Integer.parseInt(properties.getProperty("Columns", "4"));
+        rows = Integer.parseInt(gameSetting(properties, settings, "Rows", "3"));
+        columns = Integer.parseInt(gameSetting(properties, settings, "Columns", "4"));
         tableSize = rows * columns;
+        gameSettings = Collections.unmodifiableMap(settings);
         cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
         cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
@@ -241,6 +328,15 @@ public class Config {
         }
     }
 
+    /**
+     * Reads a setting that changes how the game plays, and keeps its value in the game settings.
+     */
+    private static String gameSetting(Properties properties, Map<String, String> settings, String name, String defaultValue) {
+        String value = properties.getProperty(name, defaultValue).trim();
+        settings.put(name, value);
+        return value;
+    }
+
     public int[] playerKeys(int player) {
         return playerKeys[player];
     }
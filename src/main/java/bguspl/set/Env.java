@@ -8,11 +8,28 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final Metrics metrics;
+    public final GameThreads threads;
+    public final Clock clock;
+    public final GameRecorder recorder;
+    public final EventJournal journal;
 
-    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Metrics metrics) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.metrics = metrics;
+        this.threads = new GameThreads(logger, config);
+        this.clock = config.virtualClock ? new VirtualClock() : new RealClock();
+        this.recorder = new GameRecorder(logger, clock, config.recordFile);
+        this.journal = new EventJournal(logger, clock, config.journalFile, config.journalCapacity, config.players,
+                config.tableSize);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, (player, cpuNanos, wakeups) -> logger.info("player " + (player + 1) + " used "
+                + (cpuNanos < 0 ? "unknown cpu time" : cpuNanos / 1000000 + " ms of cpu time") + " in " + wakeups
+                + " wakeups."));
     }
 }
@@ -0,0 +1,228 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A binary journal of the game events, written to a memory-mapped file. Every event is a fixed-width record, and a
+ * thread appends one by reserving its place with a single atomic add on the append cursor and writing the fields in
+ * place: there is no lock, no formatting and no system call per event. JournalReader converts a journal to text.
+ *
+ * The file starts with a header (magic, version, record count) followed by the records:
+ *
+ * time   (8 bytes) - nanoseconds of the game clock since the journal was opened
+ * type   (1 byte)  - the event type (see the constants below)
+ * who    (3 bytes) - the player id (high 14 bits) and the grid slot (low 10 bits), all ones for none (the dealer's
+ *                    events, or no slot)
+ * value  (4 bytes) - the card id, the verdict, the freeze time in milliseconds or the cards left in the deck
+ *
+ * A claim is written as consecutive CLAIM records, one for each claimed slot, with the slot's index in the claim as
+ * the value. Once an event does not fit, the journal is full: that event and the later ones are dropped (and counted).
+ * If no file is configured, or the game has more players or slots than the records can hold, the journal does nothing.
+ */
+public class EventJournal {
+
+    public static final int MAGIC = 0x5345544a; // "SETJ"
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 16;
+
+    /**
+     * The largest player id and slot a record can hold.
+     */
+    public static final int MAX_PLAYER = (1 << 14) - 2;
+    public static final int MAX_SLOT = (1 << 10) - 2;
+
+    public static final byte CARD_PLACED = 1;
+    public static final byte CARD_REMOVED = 2;
+    public static final byte TOKEN_PLACED = 3;
+    public static final byte TOKEN_REMOVED = 4;
+    public static final byte CLAIM = 5;
+    public static final byte VERDICT = 6;
+    public static final byte RESHUFFLE = 7;
+    public static final byte FREEZE = 8;
+
+    private final Logger logger;
+    private final Clock clock;
+
+    /**
+     * The mapped journal file, null if not journaling.
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * The byte offset of the next record in the file.
+     */
+    private final AtomicLong cursor = new AtomicLong(HEADER_BYTES);
+
+    /**
+     * The byte offset of the first record that did not fit, the end of the journal.
+     */
+    private final AtomicLong end = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * The number of records dropped because the journal was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The clock time when the journal was opened.
+     */
+    private final long origin;
+
+    private boolean closed;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger   - the logger.
+     * @param clock    - the clock of the game.
+     * @param file     - the journal file (empty for no journal).
+     * @param capacity - the maximal number of records in the journal.
+     * @param players  - the number of players of the game.
+     * @param slots    - the number of grid slots of the game.
+     */
+    public EventJournal(Logger logger, Clock clock, String file, int capacity, int players, int slots) {
+        this.logger = logger;
+        this.clock = clock;
+        MappedByteBuffer mapped = null;
+        if (file != null && !file.isEmpty() && (players - 1 > MAX_PLAYER || slots - 1 > MAX_SLOT))
+            logger.severe("cannot write the event journal: it holds up to " + (MAX_PLAYER + 1) + " players and "
+                    + (MAX_SLOT + 1) + " slots.");
+        else if (file != null && !file.isEmpty()) try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) capacity * RECORD_BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.putInt(0, MAGIC);
+            mapped.putInt(4, VERSION);
+        } catch (IOException | IllegalArgumentException e) {
+            logger.severe("cannot write the event journal to " + file + ": " + e);
+            mapped = null;
+        }
+        buffer = mapped;
+        origin = clock.nanoTime();
+    }
+
+    /**
+     * @return - true iff the events are journaled.
+     */
+    public boolean enabled() {
+        return buffer != null;
+    }
+
+    public void cardPlaced(int slot, int card) {
+        if (buffer != null) append(CARD_PLACED, -1, slot, card);
+    }
+
+    public void cardRemoved(int slot, int card) {
+        if (buffer != null) append(CARD_REMOVED, -1, slot, card);
+    }
+
+    public void tokenPlaced(int player, int slot) {
+        if (buffer != null) append(TOKEN_PLACED, player, slot, 0);
+    }
+
+    public void tokenRemoved(int player, int slot) {
+        if (buffer != null) append(TOKEN_REMOVED, player, slot, 0);
+    }
+
+    public void claim(int player, int[] slots) {
+        if (buffer == null) return;
+        long offset = reserve(slots.length);
+        if (offset < 0) return;
+        long time = time();
+        for (int i = 0; i < slots.length; ++i, offset += RECORD_BYTES)
+            write(offset, time, CLAIM, player, slots[i], i);
+    }
+
+    public void verdict(int player, int verdict) {
+        if (buffer != null) append(VERDICT, player, -1, verdict);
+    }
+
+    /**
+     * @param deckSize - the number of cards in the deck after shuffling it.
+     */
+    public void reshuffle(int deckSize) {
+        if (buffer != null) append(RESHUFFLE, -1, -1, deckSize);
+    }
+
+    /**
+     * @param millis - the freeze time in milliseconds.
+     */
+    public void freeze(int player, long millis) {
+        if (buffer != null) append(FREEZE, player, -1, (int) Math.min(millis, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Writes the record count to the header and flushes the journal to the file. Events after closing are dropped.
+     */
+    public synchronized void close() {
+        if (buffer == null || closed) return;
+        closed = true;
+        long last = Math.min(cursor.getAndSet(buffer.capacity()), end.get()); // no more records
+        buffer.putLong(8, (Math.min(last, buffer.capacity()) - HEADER_BYTES) / RECORD_BYTES);
+        buffer.force();
+        if (dropped.get() > 0) logger.warning("the event journal was full, " + dropped.get() + " events were dropped.");
+    }
+
+    private void append(byte type, int player, int slot, int value) {
+        long offset = reserve(1);
+        if (offset >= 0) write(offset, time(), type, player, slot, value);
+    }
+
+    /**
+     * Reserves consecutive records at the end of the journal.
+     *
+     * @return - the byte offset of the first record, -1 if the journal is full.
+     */
+    private long reserve(int records) {
+        long offset = cursor.getAndAdd((long) records * RECORD_BYTES);
+        if (offset + (long) records * RECORD_BYTES <= buffer.capacity()) return offset;
+        end.accumulateAndGet(offset, Math::min);
+        dropped.addAndGet(records);
+        return -1;
+    }
+
+    private void write(long offset, long time, byte type, int player, int slot, int value) {
+        int index = (int) offset;
+        int who = (player & 0x3fff) << 10 | slot & 0x3ff; // -1 is all ones
+        buffer.putLong(index, time);
+        buffer.putShort(index + 9, (short) who);
+        buffer.put(index + 11, (byte) (who >>> 16));
+        buffer.putInt(index + 12, value);
+        buffer.put(index + 8, type); // a record with type 0 was never completed
+    }
+
+    /**
+     * @return - the player id of the record at the given offset, -1 if none.
+     */
+    public static int player(ByteBuffer buffer, int offset) {
+        int player = who(buffer, offset) >>> 10;
+        return player == 0x3fff ? -1 : player;
+    }
+
+    /**
+     * @return - the slot of the record at the given offset, -1 if none.
+     */
+    public static int slot(ByteBuffer buffer, int offset) {
+        int slot = who(buffer, offset) & 0x3ff;
+        return slot == 0x3ff ? -1 : slot;
+    }
+
+    private static int who(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset + 9) & 0xffff | (buffer.get(offset + 11) & 0xff) << 16;
+    }
+
+    private long time() {
+        return clock.nanoTime() - origin;
+    }
+}
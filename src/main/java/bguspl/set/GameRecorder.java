@@ -0,0 +1,111 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Records the inputs and the verdicts of a game to a text file, so it can be replayed (see Replay). Each line is an
+ * event, its time is in nanoseconds of the game clock since the game started, and its phase is the number of phases
+ * the dealer ended before it (see Dealer.phase):
+ *
+ * seed [seed]                        - the seed of the game (first line)
+ * players [count]                    - the number of players
+ * setting [name] [value]             - a setting that changes how the game plays (see Config.gameSettings)
+ * K [time] [phase] [player] [slot]   - a key press accepted by a player
+ * C [time] [player] [slot]...        - a claim checked by the dealer (in the order they are checked)
+ * V [time] [player] [verdict]        - the dealer's verdict (1 legal, 0 illegal, -1 dropped)
+ * E [time] [phase]                   - the end of the game
+ *
+ * If no file is configured the recorder does nothing.
+ */
+public class GameRecorder {
+
+    private final Clock clock;
+
+    /**
+     * The recording file, null if not recording.
+     */
+    private final PrintWriter out;
+
+    /**
+     * The clock time when the game started.
+     */
+    private long origin;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger - the logger.
+     * @param clock  - the clock of the game.
+     * @param file   - the recording file (empty for no recording).
+     */
+    public GameRecorder(Logger logger, Clock clock, String file) {
+        this.clock = clock;
+        PrintWriter writer = null;
+        if (file != null && !file.isEmpty()) try {
+            BufferedWriter buffered = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8);
+            writer = new PrintWriter(buffered);
+        } catch (IOException e) {
+            logger.severe("cannot record the game to " + file + ": " + e);
+        }
+        out = writer;
+    }
+
+    /**
+     * @return - true iff the game is recorded.
+     */
+    public boolean enabled() {
+        return out != null;
+    }
+
+    public synchronized void start(long seed, int players, Map<String, String> settings) {
+        if (out == null) return;
+        origin = clock.nanoTime();
+        out.println("seed " + seed);
+        out.println("players " + players);
+        settings.forEach((name, value) -> out.println("setting " + name + " " + value));
+    }
+
+    public void keyPressed(int player, int slot, int phase) {
+        if (out == null) return;
+        synchronized (this) {
+            out.println("K " + time() + " " + phase + " " + player + " " + slot);
+        }
+    }
+
+    public void claim(int player, int[] slots) {
+        if (out == null) return;
+        synchronized (this) {
+            StringBuilder line = new StringBuilder("C ").append(time()).append(' ').append(player);
+            for (int slot : slots)
+                line.append(' ').append(slot);
+            out.println(line);
+        }
+    }
+
+    public void verdict(int player, int verdict) {
+        if (out == null) return;
+        synchronized (this) {
+            out.println("V " + time() + " " + player + " " + verdict);
+        }
+    }
+
+    /**
+     * Records the end of the game and closes the recording.
+     */
+    public synchronized void end(int phase) {
+        if (out == null) return;
+        out.println("E " + time() + " " + phase);
+        out.close();
+    }
+
+    private long time() {
+        return clock.nanoTime() - origin;
+    }
+}
@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Logger;
+
+/**
+ * Creates the threads of the players and the computer players: platform threads, or virtual threads if configured and
+ * the runtime supports them (Java 21 and up). The game threads wait in the game's Clock: RealClock parks them
+ * (LockSupport) and VirtualClock waits on a ReentrantLock Condition, so a waiting virtual thread does not pin its
+ * carrier thread. They also take the table's monitor for short updates (which may pin a carrier while it is held).
+ */
+public class GameThreads implements ThreadFactory {
+
+    /**
+     * The factory creating the threads.
+     */
+    private final ThreadFactory factory;
+
+    /**
+     * True iff the threads created are virtual threads.
+     */
+    public final boolean virtual;
+
+    /**
+     * The class constructor.
+     *
+     * @param logger - the logger.
+     * @param config - the game configuration.
+     */
+    public GameThreads(Logger logger, Config config) {
+        ThreadFactory virtualFactory = config.virtualThreads ? virtualThreadFactory(logger) : null;
+        virtual = virtualFactory != null;
+        factory = virtual ? virtualFactory : Thread::new;
+    }
+
+    /**
+     * Creates a new (not started) thread.
+     *
+     * @param target - the code the thread runs.
+     * @return - the thread.
+     */
+    @Override
+    public Thread newThread(Runnable target) {
+        return factory.newThread(target);
+    }
+
+    /**
+     * Creates and starts a new thread that takes part in the game (registered with the clock before it starts).
+     *
+     * @param target - the code the thread runs.
+     * @param name   - the name of the thread.
+     * @param clock  - the clock of the game.
+     * @return - the started thread.
+     */
+    public Thread start(Runnable target, String name, Clock clock) {
+        Thread thread = newThread(target);
+        thread.setName(name);
+        clock.register(thread);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Looks up Thread.ofVirtual().factory() (the code is compiled for runtimes that do not have it).
+     *
+     * @return - the virtual thread factory, or null if virtual threads are not supported.
+     */
+    private static ThreadFactory virtualThreadFactory(Logger logger) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warning("virtual threads are not supported by java " + System.getProperty("java.version")
+                    + ", using platform threads");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class contains the main function of the journal reader: it converts an event journal written by EventJournal
+ * to text, one line for each event (and one line for each claim).
+ *
+ * Usage: JournalReader [journal] [output]
+ * The text is written to the output file, or to the standard output if no output file is given.
+ */
+public class JournalReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) throw new IllegalArgumentException("usage: JournalReader journal [output]");
+
+        MappedByteBuffer journal;
+        try (FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+            journal = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        journal.order(ByteOrder.LITTLE_ENDIAN);
+        if (journal.capacity() < EventJournal.HEADER_BYTES || journal.getInt(0) != EventJournal.MAGIC)
+            throw new IOException(args[0] + " is not an event journal");
+        if (journal.getInt(4) != EventJournal.VERSION)
+            throw new IOException(args[0] + " has an unsupported journal version " + journal.getInt(4));
+
+        // the record count is written when the journal is closed, otherwise read up to the first incomplete record
+        long records = journal.getLong(8);
+        long capacity = (journal.capacity() - EventJournal.HEADER_BYTES) / EventJournal.RECORD_BYTES;
+        if (records == 0 || records > capacity) records = capacity;
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(args.length > 1
+                ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        StringBuilder claim = null;
+        for (long i = 0; i < records; ++i) {
+            int index = (int) (EventJournal.HEADER_BYTES + i * EventJournal.RECORD_BYTES);
+            byte type = journal.get(index + 8);
+            if (type == 0) break;
+            long time = journal.getLong(index);
+            int player = EventJournal.player(journal, index) + 1; // players are numbered from 1, as in the log
+            int slot = EventJournal.slot(journal, index);
+            int value = journal.getInt(index + 12);
+
+            if (claim != null && (type != EventJournal.CLAIM || value == 0)) {
+                out.println(claim);
+                claim = null;
+            }
+            String when = String.format("%d.%09d ", time / 1000000000, time % 1000000000);
+            switch (type) {
+                case EventJournal.CARD_PLACED: out.println(when + "card " + value + " placed on slot " + slot); break;
+                case EventJournal.CARD_REMOVED: out.println(when + "card " + value + " removed from slot " + slot); break;
+                case EventJournal.TOKEN_PLACED: out.println(when + "player " + player + " placed a token on slot " + slot); break;
+                case EventJournal.TOKEN_REMOVED: out.println(when + "player " + player + " removed a token from slot " + slot); break;
+                case EventJournal.CLAIM:
+                    if (claim == null) claim = new StringBuilder(when).append("player ").append(player).append(" claims slots");
+                    claim.append(' ').append(slot);
+                    break;
+                case EventJournal.VERDICT: out.println(when + "player " + player + " verdict "
+                        + (value == 1 ? "legal" : value == 0 ? "illegal" : "dropped")); break;
+                case EventJournal.RESHUFFLE: out.println(when + "reshuffle, " + value + " cards in the deck"); break;
+                case EventJournal.FREEZE: out.println(when + "player " + player + " frozen for " + value + " ms"); break;
+                default: out.println(when + "unknown event " + type); break;
+            }
+        }
+        if (claim != null) out.println(claim);
+        out.flush();
+        if (args.length > 1) out.close();
+    }
+}
@@ -49,6 +49,7 @@ public class Main {
         UserInterface ui = null;
         try {
             ui = new UserInterfaceSwing(logger, config, players);
+            ui = new UserInterfaceAnimator(logger, config, ui);
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
             logger.severe("will try to run without user interface");
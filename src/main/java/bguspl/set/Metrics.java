@@ -0,0 +1,16 @@
+package bguspl.set;
+
+/**
+ * An interface for reporting runtime metrics of the game threads.
+ */
+public interface Metrics {
+
+    /**
+     * Reports the resources used by a player thread.
+     *
+     * @param player   - the player id.
+     * @param cpuNanos - the CPU time used by the player thread, in nanoseconds (-1 if not supported).
+     * @param wakeups  - the number of times the player thread woke up.
+     */
+    void playerStats(int player, long cpuNanos, long wakeups);
+}
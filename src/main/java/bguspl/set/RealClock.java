@@ -0,0 +1,38 @@
+package bguspl.set;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The clock of the real world: the system time, and LockSupport for parking.
+ */
+public class RealClock implements Clock {
+
+    @Override
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void parkUntilNanos(Object blocker, long deadline) {
+        if (deadline == Long.MAX_VALUE)
+            LockSupport.park(blocker);
+        else
+            LockSupport.parkNanos(blocker, deadline - System.nanoTime());
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        LockSupport.unpark(thread);
+    }
+
+    @Override
+    public void register(Thread thread) {}
+
+    @Override
+    public void unregister() {}
+}
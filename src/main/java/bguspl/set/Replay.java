@@ -0,0 +1,164 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * This class contains the main function of the replay mode: it plays a game recorded by GameRecorder again, at full
+ * speed and without a user interface. The deck is shuffled with the recorded seed, and the recorded key presses are
+ * pressed at their recorded times and dealer phases (in simulated time) instead of the players' input.
+ *
+ * Usage: Replay [recording] [property=value...]
+ * The game uses config.properties, overridden by the given properties and then by the recorded game settings (see
+ * Config.gameSettings). The replayed game is recorded to [recording].replay, and its claims and verdicts are compared
+ * with the recorded ones.
+ */
+public class Replay {
+
+    /**
+     * A recorded key press.
+     */
+    private static class Key {
+        final long time;
+        final int phase;
+        final int player;
+        final int slot;
+
+        Key(long time, int phase, int player, int slot) {
+            this.time = time;
+            this.phase = phase;
+            this.player = player;
+            this.slot = slot;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) throw new IllegalArgumentException("usage: Replay recording [property=value...]");
+        String recording = args[0];
+
+        Logger logger = Logger.getLogger("SetReplayLogger");
+        logger.setUseParentHandlers(false);
+        Properties properties = Config.loadProperties("config.properties", logger);
+        properties.put("LogLevel", "OFF");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+        properties.put("Hints", "False");
+        properties.put("Clock", "Virtual");
+        for (int i = 1; i < args.length; ++i) {
+            int split = args[i].indexOf('=');
+            if (split < 0) throw new IllegalArgumentException("expected property=value: " + args[i]);
+            properties.put(args[i].substring(0, split).trim(), args[i].substring(split + 1).trim());
+        }
+
+        long start = System.nanoTime();
+        String replayed = replay(recording, properties, logger);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("replayed %s in %.2f s%n", recording, seconds);
+        List<String> recordedOutputs = outputs(recording);
+        List<String> replayedOutputs = outputs(replayed);
+        int same = 0;
+        while (same < recordedOutputs.size() && same < replayedOutputs.size()
+                && recordedOutputs.get(same).equals(replayedOutputs.get(same)))
+            ++same;
+        if (same == recordedOutputs.size() && same == replayedOutputs.size())
+            System.out.println("the " + same + " claims and verdicts match the recording");
+        else
+            System.out.println("the replay diverged after " + same + " claims and verdicts: recorded "
+                    + (same < recordedOutputs.size() ? recordedOutputs.get(same) : "end") + ", replayed "
+                    + (same < replayedOutputs.size() ? replayedOutputs.get(same) : "end"));
+    }
+
+    /**
+     * Replays a recorded game. A key press is pressed at its recorded time once the dealer ended its recorded phase,
+     * so it comes in the same order with respect to the dealer's actions of the same time (see Dealer.phase).
+     *
+     * @param recording  - the recording file.
+     * @param properties - the configuration of the game (the seed, the players and the game settings are taken from
+     *                     the recording).
+     * @param logger     - the logger.
+     * @return - the recording of the replayed game.
+     */
+    static String replay(String recording, Properties properties, Logger logger) throws IOException, InterruptedException {
+        long seed = 0;
+        int playerCount = 0;
+        long endTime = -1;
+        int endPhase = 0;
+        Properties settings = new Properties();
+        List<Key> keys = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(recording), StandardCharsets.UTF_8)) {
+            String[] fields = line.trim().split(" ");
+            switch (fields[0]) {
+                case "seed": seed = Long.parseLong(fields[1]); break;
+                case "players": playerCount = Integer.parseInt(fields[1]); break;
+                case "setting": settings.put(fields[1], fields.length > 2 ? fields[2] : ""); break;
+                case "K": keys.add(new Key(Long.parseLong(fields[1]), Integer.parseInt(fields[2]),
+                        Integer.parseInt(fields[3]), Integer.parseInt(fields[4]))); break;
+                case "E": endTime = Long.parseLong(fields[1]); endPhase = Integer.parseInt(fields[2]); break;
+                default: break; // claims and verdicts are outputs of the game
+            }
+        }
+
+        properties = (Properties) properties.clone();
+        properties.putAll(settings); // the game plays as recorded, whatever the given configuration
+        properties.put("Seed", Long.toString(seed));
+        properties.put("HumanPlayers", Integer.toString(playerCount));
+        properties.put("ComputerPlayers", "0");
+        properties.put("RecordFile", recording + ".replay");
+
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new NullUserInterface(), new UtilImpl(config));
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, true); // driven by the recorded key presses
+
+        long finalEndTime = endTime;
+        int finalEndPhase = endPhase;
+        env.clock.register(Thread.currentThread()); // the time starts with the dealer (which runs on this thread)
+        Thread driver = env.threads.start(() -> {
+            long origin = env.clock.nanoTime();
+            try {
+                for (Key key : keys) {
+                    env.clock.sleepUntilNanos(origin + key.time);
+                    dealer.awaitPhase(key.phase);
+                    players[key.player].replayKey(key.slot);
+                }
+                if (finalEndTime >= 0) {
+                    env.clock.sleepUntilNanos(origin + finalEndTime);
+                    dealer.awaitPhase(finalEndPhase); // the game may end by itself at this time
+                    dealer.terminate(); // the recorded game ended here
+                }
+            } catch (InterruptedException ignored) {}
+            env.clock.unregister();
+        }, "replay", env.clock);
+        dealer.run();
+        driver.interrupt(); // the game is over, the rest of the key presses are not needed
+        driver.join();
+        return config.recordFile;
+    }
+
+    /**
+     * Reads the claims and the verdicts of a recording.
+     *
+     * @param recording - the recording file.
+     * @return - the claim and verdict lines.
+     */
+    static List<String> outputs(String recording) throws IOException {
+        List<String> outputs = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(recording), StandardCharsets.UTF_8))
+            if (line.startsWith("C ") || line.startsWith("V ")) outputs.add(line);
+        return outputs;
+    }
+}
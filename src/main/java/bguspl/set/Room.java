@@ -0,0 +1,90 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A single game hosted by a RoomManager, with its own environment, table, dealer and players. Rooms are headless: the
+ * game is only visible through its results.
+ */
+public class Room {
+
+    /**
+     * The id of the room (unique in its manager).
+     */
+    public final int id;
+
+    /**
+     * The game environment object of the room.
+     */
+    public final Env env;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Dealer dealer;
+    private final Player[] players;
+
+    /**
+     * Counted down once the game has ended.
+     */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * The class constructor: creates the game entities (the game starts when the dealer runs).
+     *
+     * @param id  - the id of the room.
+     * @param env - the game environment object of the room.
+     */
+    Room(int id, Env env) {
+        this.id = id;
+        this.env = env;
+        players = new Player[env.config.players];
+        table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+    }
+
+    /**
+     * Runs the game on the current thread until it ends.
+     */
+    void run() {
+        try {
+            dealer.run();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Ends the game early.
+     */
+    public void close() {
+        dealer.terminate();
+    }
+
+    /**
+     * Waits for the game to end.
+     *
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public void awaitFinished() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * @return - true iff the game has ended.
+     */
+    public boolean isFinished() {
+        return finished.getCount() == 0;
+    }
+
+    public Dealer getDealer() {
+        return dealer;
+    }
+}
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent games (rooms) in one JVM. Each room has its own configuration, environment, table, dealer and
+ * players. The dealers run on a shared thread pool, which also bounds the number of open rooms (the admission limit).
+ *
+ * The players are not run by the pool: each player, and each computer player's key generator, has its own thread
+ * (see GameThreads) of the room's ThreadMode. With ThreadMode=Virtual on Java 21 and up the players of all the rooms
+ * share the JVM's carrier threads. With platform threads the pool size does not bound the thread footprint: the
+ * admission limit does, at up to maxRooms * (1 + 2 * players) threads.
+ *
+ * The results of all the games are collected into one set of metrics. A room writes its recording (RecordFile) and its
+ * event journal (JournalFile) to the configured file name followed by "." and the room id, so rooms opened with the
+ * same properties do not overwrite each other's files.
+ */
+public class RoomManager {
+
+    private final Logger logger;
+
+    /**
+     * The thread pool running the dealers of the open rooms.
+     */
+    private final ExecutorService dealers;
+
+    /**
+     * A permit per room that can be opened.
+     */
+    private final Semaphore admissions;
+    private final int maxRooms;
+
+    /**
+     * The open rooms by id.
+     */
+    private final Map<Integer, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Metrics of the games that ended.
+     */
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder setsFound = new LongAdder();
+    private final LongAdder claimsChecked = new LongAdder();
+    private final LongAdder gameMillis = new LongAdder();
+
+    /**
+     * Metrics of the players of all the rooms.
+     */
+    private final LongAdder playerCpuNanos = new LongAdder();
+    private final LongAdder playerWakeups = new LongAdder();
+
+    /**
+     * The number of players whose CPU time could not be measured (e.g. virtual threads).
+     */
+    private final LongAdder playersNotMeasured = new LongAdder();
+
+    /**
+     * The class constructor.
+     *
+     * @param logger   - the logger (each room logs to a child logger of it).
+     * @param maxRooms - the number of rooms that can be open at the same time.
+     */
+    public RoomManager(Logger logger, int maxRooms) {
+        this.logger = logger;
+        this.maxRooms = maxRooms;
+        admissions = new Semaphore(maxRooms);
+        AtomicInteger threads = new AtomicInteger();
+        dealers = Executors.newFixedThreadPool(maxRooms, target -> new Thread(target, "dealer-" + threads.getAndIncrement()));
+    }
+
+    /**
+     * Opens a room and starts its game, if the admission limit allows it.
+     *
+     * @param properties - the configuration of the game.
+     * @return - the room, or null if the maximal number of rooms is open.
+     */
+    public Room tryOpen(Properties properties) {
+        if (!admissions.tryAcquire()) {
+            logger.warning("room limit reached, cannot open a room");
+            return null;
+        }
+        return start(properties);
+    }
+
+    /**
+     * Opens a room and starts its game, waiting until the admission limit allows it.
+     *
+     * @param properties - the configuration of the game.
+     * @return - the room.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public Room open(Properties properties) throws InterruptedException {
+        admissions.acquire();
+        return start(properties);
+    }
+
+    private Room start(Properties properties) {
+        int id = nextId.getAndIncrement();
+        Room room;
+        try {
+            Logger roomLogger = Logger.getAnonymousLogger();
+            roomLogger.setParent(logger);
+            Properties roomProperties = new Properties(properties);
+            for (String file : new String[]{"RecordFile", "JournalFile"}) {
+                String name = properties.getProperty(file, "").trim();
+                if (!name.isEmpty()) roomProperties.setProperty(file, name + "." + id);
+            }
+            Config config = new Config(roomLogger, roomProperties);
+            Env env = new Env(roomLogger, config, new NullUserInterface(), new UtilImpl(config), this::playerStats);
+            room = new Room(id, env);
+        } catch (RuntimeException e) {
+            admissions.release();
+            throw e;
+        }
+        rooms.put(id, room);
+        dealers.execute(() -> {
+            try {
+                room.run();
+                gamesFinished.increment();
+                setsFound.add(room.getDealer().setsFound());
+                claimsChecked.add(room.getDealer().claimsChecked());
+                gameMillis.add(room.getDealer().gameMillis());
+            } catch (RuntimeException e) {
+                logger.severe("room " + id + " failed: " + e);
+            } finally {
+                rooms.remove(id);
+                admissions.release();
+            }
+        });
+        return room;
+    }
+
+    private void playerStats(int player, long cpuNanos, long wakeups) {
+        if (cpuNanos >= 0) playerCpuNanos.add(cpuNanos);
+        else playersNotMeasured.increment();
+        playerWakeups.add(wakeups);
+    }
+
+    /**
+     * @return - the rooms open now.
+     */
+    public Collection<Room> rooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    /**
+     * Waits until no room is open (the metrics include all the games that were opened before).
+     *
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public void awaitIdle() throws InterruptedException {
+        admissions.acquire(maxRooms);
+        admissions.release(maxRooms);
+    }
+
+    /**
+     * Closes all the rooms and stops the manager.
+     *
+     * @throws InterruptedException - if interrupted while waiting for the games to end.
+     */
+    public void shutdown() throws InterruptedException {
+        dealers.shutdown();
+        for (Room room : rooms.values())
+            room.close();
+        dealers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    public int openRooms() {
+        return rooms.size();
+    }
+
+    public long gamesFinished() {
+        return gamesFinished.sum();
+    }
+
+    public long setsFound() {
+        return setsFound.sum();
+    }
+
+    public long claimsChecked() {
+        return claimsChecked.sum();
+    }
+
+    public long gameMillis() {
+        return gameMillis.sum();
+    }
+
+    /**
+     * @return - the CPU time used by the player threads in nanoseconds, -1 if the CPU time of some of them could not be
+     *           measured (the runtime does not measure virtual threads).
+     */
+    public long playerCpuNanos() {
+        return playersNotMeasured.sum() > 0 ? -1 : playerCpuNanos.sum();
+    }
+
+    public long playerWakeups() {
+        return playerWakeups.sum();
+    }
+}
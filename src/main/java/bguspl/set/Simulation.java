@@ -0,0 +1,61 @@
+package bguspl.set;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * This class contains the main function of the headless simulation: it runs many complete games of computer players,
+ * without a user interface, in the rooms of a RoomManager and reports the aggregate results.
+ *
+ * Usage: Simulation [Games=n] [Parallelism=n] [property=value...]
+ * The games use config.properties, overridden by the given properties, with no human players, no table delay and no
+ * logging, in simulated time (unless overridden). If a Seed is given, game i uses Seed + i.
+ */
+public class Simulation {
+
+    public static void main(String[] args) throws Exception {
+        Logger logger = Logger.getLogger("SetSimulationLogger");
+        logger.setUseParentHandlers(false);
+
+        Properties properties = Config.loadProperties("config.properties", logger);
+        properties.put("HumanPlayers", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+        properties.put("Hints", "False");
+        properties.put("LogLevel", "OFF");
+        properties.put("Clock", "Virtual");
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (split < 0) throw new IllegalArgumentException("expected property=value: " + arg);
+            properties.put(arg.substring(0, split).trim(), arg.substring(split + 1).trim());
+        }
+        int games = Integer.parseInt(properties.getProperty("Games", "100"));
+        int parallelism = Integer.parseInt(properties.getProperty("Parallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        String seed = properties.getProperty("Seed", "").trim();
+
+        RoomManager manager = new RoomManager(logger, parallelism);
+        long start = System.nanoTime();
+        for (int game = 0; game < games; ++game) {
+            Properties gameProperties = (Properties) properties.clone();
+            if (!seed.isEmpty()) gameProperties.put("Seed", Long.toString(Long.parseLong(seed) + game));
+            manager.open(gameProperties);
+        }
+        manager.awaitIdle();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        manager.shutdown();
+
+        long finished = manager.gamesFinished();
+        System.out.printf("simulated %d games in %.2f s (%.2f games/sec, %d in parallel)%n",
+                finished, seconds, finished / seconds, parallelism);
+        System.out.printf("sets found: %.2f per game, %.1f%% of the claims checked were legal sets%n",
+                (double) manager.setsFound() / finished,
+                manager.claimsChecked() == 0 ? 0.0 : 100.0 * manager.setsFound() / manager.claimsChecked());
+        System.out.printf("average game length: %.2f s%n", manager.gameMillis() / 1000.0 / finished);
+        long cpuNanos = manager.playerCpuNanos();
+        System.out.printf("player threads: %s and %.0f wakeups per game%n",
+                cpuNanos < 0 ? "cpu time not available (virtual threads)"
+                        : String.format("%.1f ms of cpu time", cpuNanos / 1e6 / finished),
+                (double) manager.playerWakeups() / finished);
+    }
+}
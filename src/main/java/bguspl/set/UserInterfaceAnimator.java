@@ -0,0 +1,155 @@
+package bguspl.set;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+/**
+ * Animates the changes of the table on the screen: every card placed or removed is shown after the configured table
+ * delay. The calls are queued and shown in order by an animator thread, so the game itself never waits for the delay.
+ * Changes of the tokens are queued as well (to be shown in order with the cards), other changes are shown at once.
+ * Queuing never blocks (the game changes the table while holding the table's lock). Instead, the display lag is bounded:
+ * while more than a table of changes is waiting, cards are shown without the delay until the display catches up.
+ */
+public class UserInterfaceAnimator implements UserInterface {
+
+    private final Logger logger;
+    private final UserInterface ui;
+    private final long delayMillis;
+
+    /**
+     * A change of the table, and whether it is shown after the table delay.
+     */
+    private static class Animation {
+        final Runnable change;
+        final boolean delayed;
+
+        Animation(Runnable change, boolean delayed) {
+            this.change = change;
+            this.delayed = delayed;
+        }
+    }
+
+    /**
+     * The changes of the table waiting to be shown.
+     */
+    private final BlockingQueue<Animation> animations = new LinkedBlockingQueue<>();
+
+    /**
+     * The number of waiting changes above which the table delay is skipped.
+     */
+    private final int maxBacklog;
+
+    /**
+     * True iff the user interface was disposed, changes are not queued anymore.
+     */
+    private volatile boolean disposed;
+
+    /**
+     * The thread showing the changes of the table.
+     */
+    private final Thread animator;
+
+    public UserInterfaceAnimator(Logger logger, Config config, UserInterface ui) {
+        this.logger = logger;
+        this.ui = ui;
+        this.delayMillis = config.tableDelayMillis;
+        maxBacklog = config.tableSize;
+        animator = new Thread(this::animate, "animator");
+        animator.setDaemon(true);
+        animator.start();
+    }
+
+    /**
+     * The main loop of the animator thread: shows the queued changes until disposed.
+     */
+    private void animate() {
+        ThreadLogger.logStart(logger, animator.getName());
+        try {
+            while (!Thread.interrupted()) {
+                Animation animation = animations.take();
+                if (animation.delayed && animations.size() < maxBacklog)
+                    Thread.sleep(delayMillis);
+                animation.change.run();
+            }
+        } catch (InterruptedException ignored) {}
+        ThreadLogger.logStop(logger, animator.getName());
+    }
+
+    /**
+     * Queues a change of a card, shown once the table delay has passed after the previous changes.
+     */
+    private void animateCard(Runnable change) {
+        if (!disposed) animations.add(new Animation(change, true));
+    }
+
+    /**
+     * Queues a change, shown right after the previous changes.
+     */
+    private void enqueue(Runnable change) {
+        if (!disposed) animations.add(new Animation(change, false));
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        animateCard(() -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        animateCard(() -> ui.removeCard(slot));
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        enqueue(() -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        enqueue(ui::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        enqueue(() -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        enqueue(() -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        enqueue(() -> ui.announceWinner(players));
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        animator.interrupt();
+        animations.clear();
+        ui.dispose();
+    }
+}
@@ -75,7 +75,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private String generateTime(long millies, boolean warn) {
             if (warn)
-                return format("Remaining Time: %.2f", (double) millies / 1000.0f);
+                return format("Remaining Time: %.1f", (double) millies / 1000.0f);
             else
                 return format("Remaining Time: %d", millies / 1000L);
         }
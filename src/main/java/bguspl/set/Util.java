@@ -31,6 +31,35 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Checks if the first length cards of an array form a legal set. The array may be a reusable buffer, entries past
+     * length are ignored. Does not allocate memory.
+     *
+     * @param cards  - the array of cards.
+     * @param length - the number of cards to check.
+     * @return - true iff the first length cards form a legal set.
+     */
+    boolean testSet(int[] cards, int length);
+
+    /**
+     * Checks if three cards form a legal set. Does not allocate memory.
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id.
+     * @param third  - the third card id.
+     * @return - true iff the cards form a legal set.
+     */
+    boolean testSet(int first, int second, int third);
+
+    /**
+     * Computes the only card that completes two cards into a legal set of three cards.
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id (different from first).
+     * @return - the card id completing the set, or -1 if sets are not made of three cards (config.featureSize != 3).
+     */
+    int completeSet(int first, int second);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
@@ -40,6 +69,44 @@ public interface Util {
      */
     List<int[]> findSets(List<Integer> deck, int count);
 
+    /**
+     * A callback receiving the sets found by forEachSet.
+     */
+    interface SetVisitor {
+
+        /**
+         * Called for every set found.
+         *
+         * @param set - the sorted card ids of a legal set. The array is reused between calls (copy it to keep it).
+         * @return - true to continue the search, false to stop it.
+         */
+        boolean visit(int[] set);
+    }
+
+    /**
+     * Visits the sets in the given collection of cards as they are found, until there are no more sets or the
+     * visitor stops the search.
+     *
+     * @param deck    - a collection of cards (may not include null objects).
+     * @param visitor - the visitor to call for every set found.
+     */
+    void forEachSet(List<Integer> deck, SetVisitor visitor);
+
+    /**
+     * Visits the sets in the given collection of cards that contain the given card (see forEachSet).
+     *
+     * @param deck    - a collection of cards (may not include null objects), including the card.
+     * @param card    - the card every visited set contains.
+     * @param visitor - the visitor to call for every set found.
+     */
+    default void forEachSetWith(List<Integer> deck, int card, SetVisitor visitor) {
+        forEachSet(deck, set -> {
+            for (int c : set)
+                if (c == card) return visitor.visit(set);
+            return true;
+        });
+    }
+
     /**
      * Spin a random number of times (for debugging/testing).
      */
@@ -1,10 +1,13 @@
 package bguspl.set;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,17 +16,122 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The minimal deck size for which findSets searches in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 256;
+
+    /**
+     * The number of first card indices each parallel findSets task searches sequentially.
+     */
+    private static final int PARALLEL_ROWS = 8;
+
+    /**
+     * The number of bits used to encode a single feature value in a packed card.
+     */
+    private final int bitsPerFeature;
+
+    /**
+     * A mask of the lowest bitsPerFeature bits.
+     */
+    private final int featureMask;
+
+    /**
+     * The features of every card id, packed into a long (feature i is at bit i * bitsPerFeature).
+     * Null if the features of a card do not fit in a long.
+     */
+    private final long[] packedFeatures;
+
+    /**
+     * True iff sets are validated bit-parallel on packed cards (SIMD within a register, see completePacked).
+     * This is the case for config.featureSize == 3 with up to 32 features (2 bits each).
+     */
+    private final boolean swar;
+
+    /**
+     * The low bit of every 2 bit feature in a packed card.
+     */
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    /**
+     * Converts a packed card back to its card id, one byte (4 features) at a time: the card id is the sum of
+     * packedToCard[k][byte k of the packed card]. Null if not swar.
+     */
+    private final int[][] packedToCard;
+
     public UtilImpl(Config config) {
         this.config = config;
+        bitsPerFeature = Math.max(1, 32 - Integer.numberOfLeadingZeros(config.featureSize - 1));
+        featureMask = (1 << bitsPerFeature) - 1;
+
+        if (config.featureSize <= 64 && bitsPerFeature * config.featureCount <= 64) {
+            packedFeatures = new long[config.deckSize];
+            int[] features = new int[config.featureCount];
+            for (int card = 0; card < config.deckSize; ++card) {
+                decodeFeatures(card, features);
+                long packed = 0;
+                for (int i = 0; i < config.featureCount; ++i)
+                    packed |= (long) features[i] << (i * bitsPerFeature);
+                packedFeatures[card] = packed;
+            }
+        } else packedFeatures = null;
+
+        swar = packedFeatures != null && config.featureSize == 3;
+        if (swar) {
+            packedToCard = new int[(2 * config.featureCount + 7) / 8][256];
+            int[] weights = new int[config.featureCount];
+            for (int i = config.featureCount - 1, weight = 1; i >= 0; --i, weight *= 3)
+                weights[i] = weight;
+            for (int k = 0; k < packedToCard.length; ++k)
+                for (int bits = 0; bits < 256; ++bits)
+                    for (int j = 0; j < 4 && 4 * k + j < config.featureCount; ++j)
+                        packedToCard[k][bits] += ((bits >>> (2 * j)) & 3) * weights[4 * k + j];
+        } else packedToCard = null;
     }
 
-    private void cardToFeatures(int card, int[] features) {
+    /**
+     * Computes the packed card completing two packed cards into a legal set, for all features at once.
+     * For each 2 bit feature: if both values are equal the completing value is the same value, otherwise it is the
+     * remaining value of {0, 1, 2}, which is the complement of their xor (0^1 = 1 -> 2, 0^2 = 2 -> 1, 1^2 = 3 -> 0).
+     *
+     * @param first  - the first packed card.
+     * @param second - the second packed card.
+     * @return - the packed completing card.
+     */
+    private static long completePacked(long first, long second) {
+        long xor = first ^ second;
+        long different = (xor | (xor >>> 1)) & LOW_BITS;
+        different |= different << 1;
+        return (first & ~different) | (~xor & different);
+    }
+
+    private int cardOf(long packed) {
+        int card = 0;
+        for (int k = 0; k < packedToCard.length; ++k, packed >>>= 8)
+            card += packedToCard[k][(int) packed & 0xFF];
+        return card;
+    }
+
+    private void decodeFeatures(int card, int[] features) {
         for (int i = config.featureCount - 1; i >= 0; --i) {
             features[i] = card % config.featureSize;
             card /= config.featureSize;
         }
     }
 
+    private int feature(int card, int i) {
+        return (int) (packedFeatures[card] >>> (i * bitsPerFeature)) & featureMask;
+    }
+
+    private void cardToFeatures(int card, int[] features) {
+        if (packedFeatures == null) {
+            decodeFeatures(card, features);
+            return;
+        }
+        for (int i = 0; i < config.featureCount; ++i)
+            features[i] = feature(card, i);
+    }
+
     @Override
     public int[] cardToFeatures(int card) {
         int[] features = new int[config.featureCount];
@@ -34,13 +142,56 @@ public class UtilImpl implements Util {
     @Override
     public int[][] cardsToFeatures(int[] cards) {
         int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        for (int i = 0; i < cards.length; ++i)
+            cardToFeatures(cards[i], features[i]);
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        return testSet(cards, cards.length);
+    }
+
+    @Override
+    public boolean testSet(int[] cards, int length) {
+        if (packedFeatures == null) return testSetDecoded(Arrays.copyOf(cards, length));
+        if (swar && length == 3) return testSet(cards[0], cards[1], cards[2]);
+        if (length == 0) return config.featureCount == 0;
+
+        for (int i = 0; i < config.featureCount; ++i) {
+            int first = feature(cards[0], i);
+            boolean sameSame = true, butDifferent = true;
+            long seen = 1L << first;
+            for (int j = 1; j < length; ++j) {
+                int value = feature(cards[j], i);
+                if (value != first) sameSame = false;
+                if ((seen & (1L << value)) != 0) butDifferent = false;
+                seen |= 1L << value;
+            }
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean testSet(int first, int second, int third) {
+        if (packedFeatures == null) return testSetDecoded(new int[]{first, second, third});
+        if (swar) return completePacked(packedFeatures[first], packedFeatures[second]) == packedFeatures[third];
+
+        for (int i = 0; i < config.featureCount; ++i) {
+            int a = feature(first, i), b = feature(second, i), c = feature(third, i);
+            boolean sameSame = a == b && b == c;
+            boolean butDifferent = a != b && a != c && b != c;
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Checks if an array of cards forms a legal set by decoding their features (used when features cannot be packed).
+     */
+    private boolean testSetDecoded(int[] cards) {
+        int[][] features = cardsToFeatures(cards);
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
 
@@ -64,22 +215,330 @@ public class UtilImpl implements Util {
         return true;
     }
 
+    /**
+     * Computes the only card that completes the given two cards into a legal set (for config.featureSize == 3).
+     * For each feature, if both cards agree the third card must agree as well, otherwise it must hold the remaining
+     * value, i.e. the feature values of a legal set sum up to 0 modulo 3.
+     *
+     * @param first  - the first card id.
+     * @param second - the second card id.
+     * @return - the card id completing the set.
+     */
+    private int thirdCard(int first, int second) {
+        if (swar) return cardOf(completePacked(packedFeatures[first], packedFeatures[second]));
+
+        int third = 0;
+        for (int i = 0, weight = 1; i < config.featureCount; ++i, weight *= 3) {
+            third += ((6 - first % 3 - second % 3) % 3) * weight;
+            first /= 3;
+            second /= 3;
+        }
+        return third;
+    }
+
+    @Override
+    public int completeSet(int first, int second) {
+        return config.featureSize == 3 ? thirdCard(first, second) : -1;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
+        if (count <= 0) return sets;
+        int[] cards = toArray(deck);
+
+        if (config.featureSize == 3 && cards.length >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1)
+            return findSetsInParallel(cards, count, ForkJoinPool.commonPool());
+
+        LinkedList<int[]> found = sets;
+        forEachSet(cards, set -> {
+            found.add(set.clone());
+            return found.size() < count;
+        });
+        return sets;
+    }
+
+    /**
+     * Finds up to count sets in the given cards in parallel, for config.featureSize == 3 (see FindSetsTask).
+     *
+     * @param cards - the cards.
+     * @param count - the maximum number of sets to find (positive).
+     * @param pool  - the pool to search in.
+     * @return - a list of up to count sets.
+     */
+    List<int[]> findSetsInParallel(int[] cards, int count, ForkJoinPool pool) {
+        @SuppressWarnings("unchecked")
+        List<int[]>[] leaves = new List[(cards.length + PARALLEL_ROWS - 1) / PARALLEL_ROWS];
+        pool.invoke(new FindSetsTask(cards, presence(cards), 0, cards.length, count,
+                count == Integer.MAX_VALUE ? null : new AtomicInteger(), leaves));
+
+        LinkedList<int[]> sets = new LinkedList<>();
+        for (List<int[]> leaf : leaves) {
+            if (leaf == null) continue;
+            for (int[] set : leaf) {
+                if (sets.size() == count) return sets;
+                sets.add(set);
+            }
+        }
+        return sets;
+    }
+
+    @Override
+    public void forEachSet(List<Integer> deck, SetVisitor visitor) {
+        forEachSet(toArray(deck), visitor);
+    }
+
+    private void forEachSet(int[] cards, SetVisitor visitor) {
+        if (config.featureSize == 3) visitSets(cards, presence(cards), 0, cards.length, new int[3], visitor);
+        else if (config.featureSize > 3 && config.featureSize <= 64) new PrunedSearch(cards, visitor).search(0, 0);
+        else visitCombinations(cards, visitor);
+    }
+
+    @Override
+    public void forEachSetWith(List<Integer> deck, int card, SetVisitor visitor) {
+        // the card goes first in deck order, so that every set is searched from it
+        if (deck.isEmpty()) return;
+        int[] cards = new int[deck.size()];
+        int n = 1;
+        boolean found = false;
+        cards[0] = card;
+        for (int c : deck)
+            if (c == card) found = true;
+            else if (n < cards.length) cards[n++] = c;
+        if (!found) return; // the card is not in the deck, so no set contains it
+
+        if (config.featureSize == 3) {
+            long[] present = presence(cards);
+            int[] set = new int[3];
+            for (int j = 1; j < cards.length; ++j) {
+                int other = cards[j];
+                int third = thirdCard(card, other);
+                if (third > other && (present[third >>> 6] & (1L << third)) != 0) { // found from both cards, once
+                    set[0] = card;
+                    set[1] = other;
+                    set[2] = third;
+                    Arrays.sort(set);
+                    if (!visitor.visit(set)) return;
+                }
+            }
+        } else if (config.featureSize > 3 && config.featureSize <= 64) {
+            PrunedSearch search = new PrunedSearch(cards, visitor);
+            if (search.choose(0, 0)) {
+                search.chosen[0] = 0;
+                search.search(1, 1);
+            }
+        } else Util.super.forEachSetWith(deck, card, visitor);
+    }
+
+    private static int[] toArray(List<Integer> deck) {
+        int[] cards = new int[deck.size()];
+        int i = 0;
+        for (int card : deck)
+            cards[i++] = card;
+        return cards;
+    }
+
+    /**
+     * Returns a bitmap of the given card ids.
+     */
+    private long[] presence(int[] cards) {
+        long[] present = new long[(config.deckSize + 63) >>> 6];
+        for (int card : cards)
+            present[card >>> 6] |= 1L << card;
+        return present;
+    }
+
+    /**
+     * Visits the sets whose first card (in deck order) is at an index in [from, to), for config.featureSize == 3.
+     * Every pair of cards determines the third card of its set, so it is enough to look it up in the bitmap.
+     * Each set is reported once: from the pair of its two lowest card ids.
+     *
+     * @param cards   - the deck.
+     * @param present - a bitmap of the card ids in the deck.
+     * @param from    - the first index of the range.
+     * @param to      - the index after the last index of the range.
+     * @param set     - a buffer of 3 cards passed to the visitor.
+     * @param visitor - the visitor.
+     * @return - false iff the visitor stopped the search.
+     */
+    private boolean visitSets(int[] cards, long[] present, int from, int to, int[] set, SetVisitor visitor) {
+        for (int i = from; i < to; ++i)
+            for (int j = i + 1; j < cards.length; ++j) {
+                int a = cards[i], b = cards[j];
+                int c = thirdCard(a, b);
+                if (c > a && c > b && (present[c >>> 6] & (1L << c)) != 0) {
+                    set[0] = Math.min(a, b);
+                    set[1] = Math.max(a, b);
+                    set[2] = c;
+                    if (!visitor.visit(set)) return false;
+                }
+            }
+        return true;
+    }
+
+    /**
+     * Searches a range of first card indices in parallel, by splitting it in halves until it is small enough.
+     * Every leaf task collects its own sets into its own entry of leaves (indexed by its first row), and findSets
+     * concatenates them in order once, so tasks never contend on a shared list or copy each other's results. If count
+     * is limited, all tasks stop once count sets were found between them.
+     */
+    private class FindSetsTask extends RecursiveAction {
+
+        private final int[] cards;
+        private final long[] present;
+        private final int from, to, count;
+        private final List<int[]>[] leaves;
+
+        /**
+         * The number of sets found by all the tasks, null if count is not limited.
+         */
+        private final AtomicInteger found;
+
+        FindSetsTask(int[] cards, long[] present, int from, int to, int count, AtomicInteger found, List<int[]>[] leaves) {
+            this.cards = cards;
+            this.present = present;
+            this.from = from;
+            this.to = to;
+            this.count = count;
+            this.found = found;
+            this.leaves = leaves;
+        }
+
+        @Override
+        protected void compute() {
+            if (found != null && found.get() >= count) return;
+            if (to - from <= PARALLEL_ROWS) {
+                List<int[]> sets = new ArrayList<>();
+                visitSets(cards, present, from, to, new int[3], set -> {
+                    sets.add(set.clone());
+                    return found == null || found.incrementAndGet() < count;
+                });
+                leaves[from / PARALLEL_ROWS] = sets;
+                return;
+            }
+
+            // split on a multiple of PARALLEL_ROWS, so that every leaf starts at its own row of leaves
+            int middle = from + ((to - from) / PARALLEL_ROWS + 1) / 2 * PARALLEL_ROWS;
+            FindSetsTask left = new FindSetsTask(cards, present, from, middle, count, found, leaves);
+            left.fork();
+            new FindSetsTask(cards, present, middle, to, count, found, leaves).compute();
+            left.join();
+        }
+    }
+
+    /**
+     * A backtracking search for sets of config.featureSize > 3 cards. Cards are chosen in deck order, and a partial
+     * combination is pruned as soon as one of its features is neither all same nor all different. Once all cards but
+     * the last are chosen, every feature of the last card is determined (the same value or the only value not used
+     * yet), so the last card is looked up instead of searched for.
+     */
+    private class PrunedSearch {
+
+        private final int[] cards;
+        private final SetVisitor visitor;
+        private final int[][] features;
+
+        /**
+         * The index of every card id in the deck (or -1 if not in the deck).
+         */
+        private final int[] position;
+
+        /**
+         * used[d][i] is a bitmask of the values of feature i in the first d chosen cards.
+         */
+        private final long[][] used;
+        private final int[] chosen;
+        private final int[] set;
+
+        PrunedSearch(int[] cards, SetVisitor visitor) {
+            this.cards = cards;
+            this.visitor = visitor;
+            features = cardsToFeatures(cards);
+            position = new int[config.deckSize];
+            Arrays.fill(position, -1);
+            for (int i = 0; i < cards.length; ++i)
+                position[cards[i]] = i;
+            used = new long[config.featureSize][config.featureCount];
+            chosen = new int[config.featureSize - 1];
+            set = new int[config.featureSize];
+        }
+
+        /**
+         * Chooses the card at the given depth from the deck indices starting at from.
+         *
+         * @return - false iff the visitor stopped the search.
+         */
+        boolean search(int depth, int from) {
+            int chosenCount = depth + 1;
+            for (int i = from; i < cards.length; ++i) {
+                if (!choose(depth, i)) continue;
+                chosen[depth] = i;
+                if (chosenCount < chosen.length) {
+                    if (!search(depth + 1, i + 1)) return false;
+                    continue;
+                }
+
+                int last = lastCard();
+                if (position[last] > i) {
+                    for (int j = 0; j < chosen.length; ++j)
+                        set[j] = cards[chosen[j]];
+                    set[chosen.length] = last;
+                    Arrays.sort(set);
+                    if (!visitor.visit(set)) return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Adds the features of the card at deck index i to the features used by the first depth chosen cards.
+         *
+         * @return - true iff every feature is still all same or all different.
+         */
+        private boolean choose(int depth, int i) {
+            int chosenCount = depth + 1;
+            for (int f = 0; f < config.featureCount; ++f) {
+                long mask = used[depth][f] | (1L << features[i][f]);
+                int values = Long.bitCount(mask);
+                if (chosenCount > 1 && values != 1 && values != chosenCount) return false;
+                used[depth + 1][f] = mask;
+            }
+            return true;
+        }
+
+        /**
+         * Computes the card completing the chosen cards into a set.
+         */
+        private int lastCard() {
+            long all = config.featureSize == 64 ? -1L : (1L << config.featureSize) - 1;
+            int card = 0;
+            for (int f = 0; f < config.featureCount; ++f) {
+                long mask = used[chosen.length][f];
+                long value = Long.bitCount(mask) == 1 ? mask : all & ~mask;
+                card = card * config.featureSize + Long.numberOfTrailingZeros(value);
+            }
+            return card;
+        }
+    }
+
+    /**
+     * Visits sets by testing every combination of config.featureSize cards (used when the completing card of a set
+     * cannot be computed directly).
+     */
+    private void visitCombinations(int[] deck, SetVisitor visitor) {
+        int n = deck.length;
         int r = config.featureSize;
         int[] combination = new int[r];
+        int[] cards = new int[r];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
-            }
+        while (combination[r - 1] < n) {
+            for (int i = 0; i < r; ++i)
+                cards[i] = deck[combination[i]];
+            Arrays.sort(cards);
+            if (testSet(cards, r) && !visitor.visit(cards)) return;
 
             // generate next combination in lexicographic order
             int t = r - 1;
@@ -87,7 +546,6 @@ public class UtilImpl implements Util {
             combination[t]++;
             for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
         }
-        return sets;
     }
 
     public void spin() {
@@ -0,0 +1,189 @@
+package bguspl.set;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A clock running in simulated (discrete-event) time: time stands still while any of the registered threads is
+ * running, and once all of them are parked it jumps straight to the earliest deadline they wait for. Timeouts, freezes
+ * and rate limits keep their logical behavior, but take no longer than the computation between them.
+ *
+ * A registered thread counts as running unless it is parked in this clock, so the threads of the game must only wait
+ * for time to pass through this clock (waiting on locks held for a short time is fine). The clock's state is guarded
+ * by a ReentrantLock and every thread waits on its own Condition, so a parked virtual thread does not pin its carrier.
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * The state of a thread that uses the clock.
+     */
+    private static class Waiter {
+        final Condition wakeUp;
+        boolean registered;
+        boolean parked;
+        boolean settling;
+        boolean permit;
+        long deadline;
+
+        Waiter(Condition wakeUp) {
+            this.wakeUp = wakeUp;
+        }
+    }
+
+    /**
+     * The real time when the clock was created (the virtual time starts from it).
+     */
+    private final long epochMillis = System.currentTimeMillis();
+
+    /**
+     * The virtual time in nanoseconds since the clock was created. It only changes under the lock, and is read without
+     * it (the time is read far more often than the threads park).
+     */
+    private volatile long now;
+
+    /**
+     * The number of registered threads that are not parked.
+     */
+    private int running;
+
+    private final Map<Thread, Waiter> waiters = new HashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + now / 1000000L;
+    }
+
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    @Override
+    public void parkUntilNanos(Object blocker, long deadline) {
+        Thread thread = Thread.currentThread();
+        lock.lock();
+        try {
+            Waiter waiter = waiter(thread);
+            if (waiter.permit) {
+                waiter.permit = false;
+                return;
+            }
+            if (deadline <= now || thread.isInterrupted()) return;
+
+            waiter.parked = true;
+            waiter.deadline = deadline;
+            if (waiter.registered) --running;
+            advance();
+            await(thread, waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void settle() {
+        Thread thread = Thread.currentThread();
+        lock.lock();
+        try {
+            Waiter waiter = waiter(thread);
+            if (!waiter.registered || thread.isInterrupted()) return;
+
+            // wait for a deadline that is due now, it is reached once all the registered threads are parked (unpark
+            // does not end the wait, it is kept for the next park)
+            waiter.parked = true;
+            waiter.settling = true;
+            waiter.deadline = now;
+            --running;
+            advance();
+            try {
+                await(thread, waiter);
+            } finally {
+                waiter.settling = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void unpark(Thread thread) {
+        if (thread == null) return;
+        lock.lock();
+        try {
+            Waiter waiter = waiter(thread);
+            if (waiter.parked && !waiter.settling) wake(waiter);
+            else waiter.permit = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void register(Thread thread) {
+        lock.lock();
+        try {
+            Waiter waiter = waiter(thread);
+            if (waiter.registered) return;
+            waiter.registered = true;
+            ++running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void unregister() {
+        lock.lock();
+        try {
+            Waiter waiter = waiters.remove(Thread.currentThread());
+            if (waiter == null || !waiter.registered) return;
+            --running;
+            advance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits (holding the lock) until the waiter is woken up.
+     */
+    private void await(Thread thread, Waiter waiter) {
+        try {
+            while (waiter.parked) waiter.wakeUp.await();
+        } catch (InterruptedException e) {
+            thread.interrupt(); // as LockSupport.park, return with the interrupt status set
+            wake(waiter);
+        }
+    }
+
+    private Waiter waiter(Thread thread) {
+        return waiters.computeIfAbsent(thread, t -> new Waiter(lock.newCondition()));
+    }
+
+    private void wake(Waiter waiter) {
+        if (!waiter.parked) return;
+        waiter.parked = false;
+        if (waiter.registered) ++running;
+        waiter.wakeUp.signal();
+    }
+
+    /**
+     * Advances the time to the earliest deadline if none of the registered threads is running, and wakes up the
+     * threads waiting for it.
+     */
+    private void advance() {
+        if (running > 0) return;
+        long next = Long.MAX_VALUE;
+        for (Waiter waiter : waiters.values())
+            if (waiter.parked && waiter.deadline < next) next = waiter.deadline;
+        if (next == Long.MAX_VALUE) return;
+
+        now = Math.max(now, next);
+        for (Waiter waiter : waiters.values())
+            if (waiter.parked && waiter.deadline <= now) wake(waiter);
+    }
+}
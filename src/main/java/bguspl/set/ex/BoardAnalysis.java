@@ -0,0 +1,36 @@
+package bguspl.set.ex;
+
+/**
+ * This class holds an immutable analysis of the cards on the table at a given table version: the legal sets on the
+ * table and the occupied slots. It is computed once per version and shared by all the computer players.
+ */
+public class BoardAnalysis {
+
+    /**
+     * The version of the table this analysis was computed for (see Table.version).
+     */
+    public final long version;
+
+    /**
+     * The slots of every legal set on the table.
+     */
+    public final int[][] sets;
+
+    /**
+     * The slots that have a card in them.
+     */
+    public final int[] occupied;
+
+    /**
+     * The class constructor.
+     *
+     * @param version  - the version of the table.
+     * @param sets     - the slots of every legal set on the table.
+     * @param occupied - the slots that have a card in them.
+     */
+    public BoardAnalysis(long version, int[][] sets, int[] occupied) {
+        this.version = version;
+        this.sets = sets;
+        this.occupied = occupied;
+    }
+}
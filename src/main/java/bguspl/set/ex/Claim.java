@@ -0,0 +1,40 @@
+package bguspl.set.ex;
+
+/**
+ * This class holds a set claimed by a player, as sent to the dealer for checking.
+ */
+public class Claim {
+
+    /**
+     * The id of the player that made the claim.
+     */
+    public final int player;
+
+    /**
+     * The slots of the player's tokens.
+     */
+    public final int[] slots;
+
+    /**
+     * The version of each of the slots when the claim was made (see Table.slotVersion).
+     */
+    public final long[] slotVersions;
+
+    /**
+     * The clock time (in nanoseconds) when the claim arrived at the dealer (set by Dealer.submitClaim).
+     */
+    long arrival;
+
+    /**
+     * The class constructor.
+     *
+     * @param player       - the id of the player.
+     * @param slots        - the slots of the player's tokens.
+     * @param slotVersions - the version of each of the slots when the claim was made.
+     */
+    public Claim(int player, int[] slots, long[] slotVersions) {
+        this.player = player;
+        this.slots = slots;
+        this.slotVersions = slotVersions;
+    }
+}
@@ -2,14 +2,13 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This class manages the dealer's threads and data
@@ -28,10 +27,15 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
      */
-    private final List<Integer> deck;
-    public boolean gameFreeze = false;
+    private final Deck deck;
+    public boolean gameFreeze = true; // key presses are ignored until the cards are dealt
+
+    /**
+     * Tells whether a legal set can still be formed from the cards in play (in the deck or on the table).
+     */
+    private final SetOracle oracle;
 
     /**
      * True iff game should be terminated.
@@ -44,21 +48,74 @@ public class Dealer implements Runnable {
     private long reshuffleTime = Long.MAX_VALUE;
 
 
-    public BlockingQueue<Integer> playerSets;
+    /**
+     * The time when the current turn started (i.e. since the last reshuffle or legal set).
+     */
+    private long turnStartTime;
 
+    /**
+     * Game statistics: the number of legal sets found, the number of claims checked (not counting dropped claims) and
+     * the start and end times of the game.
+     */
+    private int setsFound;
+    private int claimsChecked;
+    private long gameStartTime;
+    private long gameEndTime;
 
+    /**
+     * The times at which the dealer needs to wake up: the next timer display tick, the start of the turn timeout
+     * warning and the reshuffle time. Claims wake the dealer up as soon as they arrive.
+     */
+    private final PriorityQueue<Long> deadlines = new PriorityQueue<>();
 
+    /**
+     * The claims sent by the players and not checked yet. Players add claims without blocking, only the dealer thread
+     * takes them.
+     */
+    private final Queue<Claim> claims = new ConcurrentLinkedQueue<>();
 
+    /**
+     * The dealer thread (woken up when a claim arrives).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The number of phases the dealer ended. In a phase the dealer changes the game on its own: it starts once the
+     * other threads are done with the current time (in simulated time), and the players it wakes up at its end act
+     * in the next phase. Key presses are recorded with the phase, so a replay presses them in the same order with
+     * respect to the dealer's actions.
+     */
+    private volatile int phase;
 
-    private long timer;
+    /**
+     * The thread waiting for a phase to end (see awaitPhase).
+     */
+    private volatile Thread phaseWaiter;
+
+    /**
+     * The order of the claims: by arrival time, and by player id for claims that arrived at the same time (so the
+     * order does not depend on the scheduling of the threads in simulated time).
+     */
+    private static final Comparator<Claim> ARRIVAL_ORDER =
+            Comparator.comparingLong((Claim claim) -> claim.arrival).thenComparingInt(claim -> claim.player);
+
+    /**
+     * Reusable buffers for checking a batch of claims: the claims, the cards of the claim being checked, the slots
+     * taken by the legal claims of the batch and the claims' verdicts.
+     */
+    private final List<Claim> batch = new ArrayList<>();
+    private final int[] claimCards = new int[3];
+    private final boolean[] takenSlots;
+    private final int[] verdicts;
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        playerSets = new ArrayBlockingQueue<>(env.config.players, true);
-        timer = 1000;
+        takenSlots = new boolean[env.config.tableSize];
+        verdicts = new int[players.length];
+        deck = new Deck(env.config.deckSize, env.config.seed);
+        oracle = new SetOracle(env, deck.toArray());
     }
 
     /**
@@ -66,25 +123,38 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
+        dealerThread = Thread.currentThread();
+        env.clock.register(dealerThread);
         env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
+        gameStartTime = env.clock.currentTimeMillis();
+        env.recorder.start(env.config.seed, players.length, env.config.gameSettings);
         for(Player player: players)
         {
-            Thread playerThread = new Thread(player, "player");
-            playerThread.start();
+            env.threads.start(player, "player-" + player.id, env.clock);
         }
-        Collections.shuffle(deck);
+        deck.shuffle();
+        env.journal.reshuffle(deck.size());
+        env.clock.settle(); // the players start before the cards are dealt
         while (!shouldFinish()) {
             placeCardsOnTable();
             gameFreeze = false;
+            endPhase();
+            for (Player player : players)
+                player.gameResumed();
             updateTimerDisplay(true);
             timerLoop();
             updateTimerDisplay(true);
+            env.clock.settle(); // the players are done with the verdicts of the last phase
             removeAllCardsFromTable();
         }
+        gameEndTime = env.clock.currentTimeMillis();
+        env.recorder.end(phase);
         announceWinners();
         terminate();
-        try { Thread.sleep(env.config.endGamePauseMillies); }
+        env.journal.close(); // after the players stopped, so their last events are in the journal
+        try { env.clock.sleep(env.config.endGamePauseMillies); }
         catch(InterruptedException ex) {}
+        env.clock.unregister();
         env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -92,12 +162,14 @@ public class Dealer implements Runnable {
      * The inner loop of the dealer thread that runs as long as the countdown did not time out.
      */
     private void timerLoop() {
-        while (!terminate && System.currentTimeMillis() < reshuffleTime)
+        while (!terminate && env.clock.currentTimeMillis() < reshuffleTime)
         {
             sleepUntilWokenOrTimeout();
+            env.clock.settle(); // in simulated time, the dealer acts once the other threads are done with the current time
             updateTimerDisplay(false);
             removeCardsFromTable();
             placeCardsOnTable();
+            endPhase(); // the players get their verdicts once the table is dealt again
             if(!checkForLegalSets()) //If no more sets on the table - finish the inner loop (60 seconds loop)
             {
                 break;
@@ -106,14 +178,7 @@ public class Dealer implements Runnable {
     }
 
     private boolean checkForLegalSets() {
-        List<Integer> board = new LinkedList<>();
-        for(int i = 0; i < 12; i++) {
-            if(table.slotToCard[i] != null)
-            {
-                board.add(table.slotToCard[i]);
-            }
-        }
-        if(env.util.findSets(board, 1).size() == 0) {
+        if(table.countSets() == 0) {
             if (deck.isEmpty())
             {
                 terminate();
@@ -132,61 +197,140 @@ public class Dealer implements Runnable {
         try {
             for (int i = players.length - 1; i >= 0; i--) {
                 players[i].terminate(); //Setting terminate to true & interrupting the AI thread if exists
-                players[i].getPlayerThread().interrupt(); //interrupting the player thread if exists
-                players[i].getPlayerThread().join(); //Waiting till the player thread is interrupted
+                Thread playerThread = players[i].getPlayerThread();
+                if (playerThread == null) continue; //The player thread did not start yet, it ends as soon as it starts
+                playerThread.interrupt(); //interrupting the player thread if exists
+                playerThread.join(); //Waiting till the player thread is interrupted
             }
             terminate = true;
+            env.clock.unpark(dealerThread);
+            env.clock.unpark(phaseWaiter);
         }
         catch (InterruptedException ignored) {}
     }
 
+    /**
+     * @return - the number of phases the dealer ended.
+     */
+    public int phase() {
+        return phase;
+    }
+
+    /**
+     * Blocks until the dealer ends the given phase or the game is terminated (used by Replay).
+     *
+     * @param phase - the phase to wait for.
+     */
+    public void awaitPhase(int phase) throws InterruptedException {
+        phaseWaiter = Thread.currentThread();
+        while (this.phase < phase && !terminate) {
+            env.clock.park(this);
+            if (Thread.interrupted()) throw new InterruptedException();
+        }
+    }
+
+    /**
+     * Ends the current phase: the players get the verdicts of the checked claims, and everything they do from now on
+     * is in the next phase.
+     */
+    private void endPhase() {
+        ++phase; // before waking anyone up
+        for (Claim c : batch) {
+            env.recorder.verdict(c.player, verdicts[c.player]);
+            env.journal.verdict(c.player, verdicts[c.player]);
+            players[c.player].verdict(verdicts[c.player]);
+        }
+        batch.clear();
+        env.clock.unpark(phaseWaiter);
+    }
+
     /**
      * Check if the game should be terminated or the game end conditions are met.
      *
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        return terminate || !oracle.hasSet();
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
+     * All the pending claims are checked as one batch, in order of arrival (see ARRIVAL_ORDER): a claim is dropped if one of its slots
+     * changed card since it was made, or was taken by an earlier legal claim of the batch. The cards of all the legal
+     * claims are removed in a single change of the table, and the players get their verdicts when the phase ends.
      */
     private void removeCardsFromTable() {
-        // TODO implement
-        synchronized (playerSets)
-        {
-            while (!playerSets.isEmpty()) //While there's a player waiting for set check
-            {
-                int playerID = playerSets.remove(); //The first player's ID
-                List<Integer> playerTokens = players[playerID].getTokens(); //Getting the player's tokens
-                int[] potentialSet = playerTokens.stream().mapToInt(Integer::intValue).toArray();
-                int[] slotsToRemove = playerTokens.stream().mapToInt(Integer::intValue).toArray();
-                for (int i = 0; i < potentialSet.length; i++) { //Turning the slots to cards
-                        potentialSet[i] = table.slotToCard[potentialSet[i]];
-                }
-                if (env.util.testSet(potentialSet) && potentialSet.length == 3) { //If the set is legal
-                    players[playerID].penaltyOrPoint = 1;
-                    synchronized (table) {
-                        for (int i = 0; i < slotsToRemove.length; i++) { //Removing the tokens & cards of the set
-                            removeTokensFromCard(slotsToRemove[i]);
-                            table.removeCard(slotsToRemove[i]);
-                        }
-                    }
-                    updateTimerDisplay(true); //Resetting the timer to 60
-                }
-                else if (!env.util.testSet(potentialSet)) //If the set is not legal
-                {
-                    players[playerID].penaltyOrPoint = 0;
-                }
-                synchronized (players[playerID].Lock)
-                {
-                    players[playerID].Lock.notifyAll(); //Waking the player from the wait
+        if (claims.isEmpty()) return;
+        Claim claim;
+        while ((claim = claims.poll()) != null)
+            batch.add(claim);
+        batch.sort(ARRIVAL_ORDER);
+
+        TableSnapshot board = table.snapshot(); // only the dealer changes the cards
+        int removed = 0;
+        for (Claim c : batch) {
+            env.recorder.claim(c.player, c.slots);
+            env.journal.claim(c.player, c.slots);
+            verdicts[c.player] = verify(c, board);
+            if (verdicts[c.player] >= 0) ++claimsChecked;
+            if (verdicts[c.player] == 1) {
+                ++setsFound;
+                for (int slot : c.slots)
+                    takenSlots[slot] = true;
+                removed += c.slots.length;
+            }
+        }
+
+        if (removed > 0) {
+            int[] slots = new int[removed];
+            int[] cards = new int[removed];
+            for (int slot = 0, i = 0; slot < takenSlots.length; ++slot)
+                if (takenSlots[slot]) {
+                    takenSlots[slot] = false;
+                    slots[i] = slot;
+                    cards[i++] = board.card(slot);
                 }
+            synchronized (table) {
+                for (int slot : slots) //Removing the tokens of the sets
+                    removeTokensFromCard(slot);
+                table.removeCards(slots);
             }
+            for (int card : cards)
+                oracle.remove(card);
+            updateTimerDisplay(true); //Resetting the timer
         }
     }
 
+    /**
+     * Checks a claim of the batch being checked.
+     *
+     * @param claim - the claim.
+     * @param board - the snapshot of the table.
+     * @return - 1 for a legal set, 0 for an illegal set, -1 if the claim is stale (some of the claimed cards were
+     *           already taken by another player).
+     */
+    private int verify(Claim claim, TableSnapshot board) {
+        int size = claim.slots.length;
+        for (int i = 0; i < size; i++) {
+            int slot = claim.slots[i];
+            if (takenSlots[slot] || board.slotVersion(slot) != claim.slotVersions[i]) return -1;
+            claimCards[i] = board.card(slot);
+        }
+        return env.util.testSet(claimCards, size) ? 1 : 0;
+    }
+
+    /**
+     * Sends a claim to the dealer. Never blocks: the claim is added to a lock-free queue and the dealer thread is woken
+     * up to check it.
+     *
+     * @param claim - the claim.
+     */
+    public void submitClaim(Claim claim) {
+        claim.arrival = env.clock.nanoTime();
+        claims.add(claim);
+        env.clock.unpark(dealerThread);
+    }
+
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
@@ -196,7 +340,7 @@ public class Dealer implements Runnable {
         synchronized (table) {
             for (int i = 0; i < table.slotToCard.length && !deck.isEmpty(); i++) {
                 if (table.slotToCard[i] == null) {
-                    table.placeCard(deck.remove(0), i);
+                    table.placeCard(deck.deal(), i);
                     placed = true;
                 }
             }
@@ -206,59 +350,52 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until the next deadline is due or the thread is awakened by a claim.
      */
     private void sleepUntilWokenOrTimeout() {
-        // TODO implement
-        synchronized (playerSets) {
-            try {
-                if (env.config.turnTimeoutMillis >= 0) {
-                    long waitingTime = timer - System.currentTimeMillis();
-                    if (env.config.turnTimeoutMillis > 0) {
-                        if (!((reshuffleTime - System.currentTimeMillis()) < 5000) && playerSets.isEmpty() && waitingTime > 25)
-                            playerSets.wait(waitingTime - 25);
-                        else if (((reshuffleTime - System.currentTimeMillis()) < 5000) && playerSets.isEmpty()) //If it's the last 5 seconds - warn & update the time faster
-                            playerSets.wait(10);
-                    }
-                    else if (env.config.turnTimeoutMillis == 0) {
-                        waitingTime = timer - System.currentTimeMillis();
-                        if (playerSets.isEmpty() && waitingTime > 25)
-                            playerSets.wait(waitingTime - 25);
-                    }
-                }
-                else if (env.config.turnTimeoutMillis < 0) {
-                    if (playerSets.isEmpty())
-                        playerSets.wait();
-                }
+        while (claims.isEmpty() && !terminate && !Thread.interrupted()) {
+            Long deadline = deadlines.peek();
+            if (deadline == null) {
+                env.clock.park(this);
+                continue;
             }
-            catch (InterruptedException ignored) {}
+            if (deadline <= env.clock.currentTimeMillis()) break;
+            env.clock.parkUntil(this, deadline);
         }
     }
 
     /**
      * Reset and/or update the countdown and the countdown display.
+     * The display is only updated when one of the deadlines is due, and the next display tick is scheduled.
      */
     private void updateTimerDisplay(boolean reset) {
-        // TODO implement
-        if (reset && env.config.turnTimeoutMillis > 0) {
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-        }
-        else if (reset && env.config.turnTimeoutMillis == 0) {
-            reshuffleTime = System.currentTimeMillis();
-        }
-        if (reset || ((reshuffleTime - System.currentTimeMillis()) < 5000) ||  System.currentTimeMillis() >= timer - 25)
-        {
+        long now = env.clock.currentTimeMillis();
+        if (reset) {
+            deadlines.clear();
+            turnStartTime = now;
             if (env.config.turnTimeoutMillis > 0) {
-                long timeDisplay = reshuffleTime - System.currentTimeMillis();
-                env.ui.setCountdown(timeDisplay, ((reshuffleTime - System.currentTimeMillis()) < 5000));
-                timer = Math.min(reshuffleTime - timeDisplay + 1000, reshuffleTime - env.config.turnTimeoutWarningMillis);
-            }
-            else if (env.config.turnTimeoutMillis == 0) {
-                long timeDisplay = System.currentTimeMillis() - reshuffleTime;
-                env.ui.setElapsed(timeDisplay);
-                timer = timeDisplay + 1000;
+                reshuffleTime = now + env.config.turnTimeoutMillis;
+                deadlines.add(reshuffleTime);
+                deadlines.add(reshuffleTime - env.config.turnTimeoutWarningMillis);
             }
         }
+        else if (deadlines.isEmpty() || deadlines.peek() > now) return; // woken up by a claim
+        while (!deadlines.isEmpty() && deadlines.peek() <= now)
+            deadlines.remove();
+
+        if (env.config.turnTimeoutMillis > 0) {
+            long remaining = Math.max(0, reshuffleTime - now);
+            boolean warn = remaining <= env.config.turnTimeoutWarningMillis;
+            env.ui.setCountdown(remaining, warn);
+            // ticks are aligned to the reshuffle time, so whole seconds are displayed
+            long tick = warn ? env.config.warningDisplayTickMillis : env.config.displayTickMillis;
+            if (remaining > 0) deadlines.add(reshuffleTime - (remaining - 1) / tick * tick);
+        }
+        else if (env.config.turnTimeoutMillis == 0) {
+            long elapsed = now - turnStartTime;
+            env.ui.setElapsed(elapsed);
+            deadlines.add(turnStartTime + (elapsed / env.config.displayTickMillis + 1) * env.config.displayTickMillis);
+        }
     }
 
     /**
@@ -277,7 +414,8 @@ public class Dealer implements Runnable {
                 }
             }
         }
-        Collections.shuffle(deck);
+        deck.shuffle();
+        env.journal.reshuffle(deck.size());
     }
 
     /**
@@ -315,7 +453,7 @@ public class Dealer implements Runnable {
         synchronized (table) {
             for (int i = 0; i < table.slotToCard.length && !deck.isEmpty(); i++) {
                 if (table.slotToCard[i] == null) {
-                    table.placeCard(deck.remove(0), i);
+                    table.placeCard(deck.deal(), i);
                     placed = true;
                 }
             }
@@ -337,10 +475,36 @@ public class Dealer implements Runnable {
                 }
             }
         }
-        Collections.shuffle(deck);
+        deck.shuffle();
+    }
+
+    public void checkClaimsForTests() {
+        removeCardsFromTable();
+        endPhase();
     }
 
     public int getDeckSize() {
         return deck.size();
     }
+
+    /**
+     * @return - the number of legal sets found by the players.
+     */
+    public int setsFound() {
+        return setsFound;
+    }
+
+    /**
+     * @return - the number of claims checked (not counting claims dropped because their cards were already taken).
+     */
+    public int claimsChecked() {
+        return claimsChecked;
+    }
+
+    /**
+     * @return - the length of the game in milliseconds (once it has ended).
+     */
+    public long gameMillis() {
+        return gameEndTime - gameStartTime;
+    }
 }
@@ -0,0 +1,96 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class holds the cards of the dealer's deck in a primitive array. The cards left in the deck are at the end of
+ * the array, starting at the deal cursor: dealing a card moves the cursor forward, and returning a card moves it back.
+ *
+ * @inv 0 <= cursor <= cards.length
+ */
+public class Deck {
+
+    /**
+     * The cards, the ones left in the deck are cards[cursor..cards.length).
+     */
+    private final int[] cards;
+
+    /**
+     * The index of the next card to deal.
+     */
+    private int cursor;
+
+    /**
+     * The random number generator used for shuffling.
+     */
+    private final Random random;
+
+    /**
+     * The class constructor. The deck holds all the cards, in order.
+     *
+     * @param size - the number of cards.
+     * @param seed - the seed for shuffling.
+     */
+    public Deck(int size, long seed) {
+        cards = new int[size];
+        for (int card = 0; card < size; ++card)
+            cards[card] = card;
+        random = new Random(seed);
+    }
+
+    /**
+     * @return - the number of cards left in the deck.
+     */
+    public int size() {
+        return cards.length - cursor;
+    }
+
+    /**
+     * @return - true iff there are no cards left in the deck.
+     */
+    public boolean isEmpty() {
+        return cursor == cards.length;
+    }
+
+    /**
+     * Deals the next card.
+     *
+     * @return - the card id.
+     *
+     * @pre - !isEmpty()
+     */
+    public int deal() {
+        return cards[cursor++];
+    }
+
+    /**
+     * Returns a card that was dealt from this deck to the deck.
+     *
+     * @param card - the card id.
+     *
+     * @pre - size() < the number of cards the deck was created with.
+     */
+    public void add(int card) {
+        cards[--cursor] = card;
+    }
+
+    /**
+     * Shuffles the cards left in the deck (Fisher-Yates).
+     */
+    public void shuffle() {
+        for (int i = cards.length - 1; i > cursor; --i) {
+            int j = cursor + random.nextInt(i - cursor + 1);
+            int card = cards[i];
+            cards[i] = cards[j];
+            cards[j] = card;
+        }
+    }
+
+    /**
+     * @return - a copy of the cards left in the deck.
+     */
+    public int[] toArray() {
+        return Arrays.copyOfRange(cards, cursor, cards.length);
+    }
+}
@@ -2,12 +2,14 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Random;
 
 /**
  * This class manages the players' threads and data
@@ -35,12 +37,12 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
 
     /**
      * True iff the player is human (not a computer player).
@@ -68,15 +70,10 @@ public class Player implements Runnable {
     private BlockingQueue<Integer> keyPresses;
 
     /**
-     * A list of the player's tokens
+     * A list of the player's tokens (also read by the AI thread)
      */
     private List<Integer> tokens;
 
-    /**
-     * Lock
-     */
-    public final Object Lock = new Object();
-
     /**
      * Penalty or Point index:
      * 1 = Point
@@ -90,7 +87,36 @@ public class Player implements Runnable {
      */
     public volatile boolean onFreeze;
 
+    /**
+     * True iff the dealer has given its verdict (penaltyOrPoint) on the player's claim.
+     */
+    private volatile boolean verdictReady;
+
+    /**
+     * The time when the current freeze (after a point or a penalty) ends, 0 if not frozen.
+     */
+    private volatile long freezeUntil;
+
+    /**
+     * The number of times the player thread woke up.
+     */
+    private volatile long wakeups;
+
+    /**
+     * The slots a smart computer player is trying to claim, null if it has not picked them yet (AI thread only).
+     */
+    private int[] target;
+
+    /**
+     * The random number generator of the computer player, seeded from the game seed (AI thread only).
+     */
+    private final Random random;
 
+    /**
+     * The table version the smart computer player last reacted to, and the time it may start pressing keys for it.
+     */
+    private long targetVersion = -1;
+    private long reactAt;
 
     /**
      * The class constructor.
@@ -108,9 +134,10 @@ public class Player implements Runnable {
         this.human = human;
         keyPresses = new ArrayBlockingQueue<>(3, true);
         this.dealer = dealer;
-        tokens = new LinkedList<>();
+        tokens = new CopyOnWriteArrayList<>();
         penaltyOrPoint = -1;
         onFreeze = false;
+        random = new Random(env.config.seed * 31 + id);
     }
 
     /**
@@ -122,96 +149,234 @@ public class Player implements Runnable {
         env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
         if (!human) createArtificialIntelligence();
 
+        // the player thread only wakes up for an event: a key press, the dealer's verdict or a freeze display tick
         while (!terminate)
         {
-            // TODO implement main player loop
-                try
-                {
-                    if (!keyPresses.isEmpty())
-                    {
-                        int keyPress;
-                        synchronized (keyPresses)
-                        {
-                            keyPress = keyPresses.remove();
-                            keyPresses.notifyAll();
-                        }
-                        if (tokens.contains(keyPress)) //If the player already has a token on that card
-                        {
-                            removeToken(keyPress);
-                        }
-                        else //If the player doesn't have a token on that card
-                        {
-                            table.semaphore.acquire();
-                            synchronized (dealer.playerSets)
-                            {
-                                synchronized (table)
-                                {
-                                    if (table.slotToCard[keyPress] != null && tokens.size() < 3)
-                                    {
-                                        table.placeToken(id, keyPress);
-                                        tokens.add(keyPress);
-                                        if (tokens.size() == 3) //Third token is placed
-                                        {
-                                            onFreeze = true;
-                                            dealer.playerSets.add(id);
-                                            dealer.playerSets.notifyAll();
-                                        }
-                                    }
-                                }
-                            }
-                            table.semaphore.release();
-                        }
-                    }
-                    if (onFreeze) { //If the set was sent to the dealer
-                        try
-                        {
-                            synchronized (Lock)
-                            {
-                                if (penaltyOrPoint == -1) //Waiting for dealer
-                                {
-                                    Lock.wait();
-                                }
-                                if (penaltyOrPoint == 1) //Legal set
-                                { // legal set
-                                    point();
-                                }
-                                else if (penaltyOrPoint == 0) //Illegal set
-                                {
-                                    penalty();
-                                }
-                            }
-                        }
-                        catch (InterruptedException ignored) {}
-                    }
+            if (freezeUntil > 0) //The player is frozen after a point or a penalty
+            {
+                freezeTick();
+            }
+            else if (onFreeze) //The set was sent to the dealer
+            {
+                if (verdictReady) {
+                    applyVerdict();
+                    wakeComputer();
+                }
+                else
+                    waitForEvent(0);
+            }
+            else
+            {
+                Integer keyPress = keyPresses.poll();
+                if (keyPress != null) {
+                    wakeComputer(); // there is room in the queue of key presses
+                    placeOrRemoveToken(keyPress);
                 }
-                catch(InterruptedException ignored) {}
+                else
+                    waitForEvent(0);
+            }
         }
         if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
+        env.clock.unregister();
+        env.metrics.playerStats(id, cpuTimeNanos(), wakeups);
         env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Blocks the player thread until it is unparked by an event or the deadline passes.
+     *
+     * @param deadline - the time to wake up at (0 for none).
+     */
+    private void waitForEvent(long deadline) {
+        if (deadline > 0)
+            env.clock.parkUntil(this, deadline);
+        else
+            env.clock.park(this);
+        ++wakeups;
+    }
+
+    /**
+     * Places a token on the slot of the key pressed, or removes it if the player already has a token there.
+     * Sends a claim to the dealer once the third token is placed.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    private void placeOrRemoveToken(int slot) {
+        if (tokens.contains(slot)) //If the player already has a token on that card
+        {
+            removeToken(slot);
+            return;
+        }
+        synchronized (table) // the cards do not change while the token is placed
+        {
+            TableSnapshot board = table.snapshot();
+            if (board.card(slot) >= 0 && tokens.size() < 3)
+            {
+                table.placeToken(id, slot);
+                tokens.add(slot);
+                if (tokens.size() == 3) //Third token is placed
+                {
+                    onFreeze = true;
+                    int[] slots = tokens.stream().mapToInt(Integer::intValue).toArray();
+                    long[] slotVersions = Arrays.stream(slots).mapToLong(board::slotVersion).toArray();
+                    dealer.submitClaim(new Claim(id, slots, slotVersions));
+                }
+            }
+        }
+    }
+
+    /**
+     * Awards a point or a penalty according to the dealer's verdict.
+     */
+    private void applyVerdict() {
+        verdictReady = false;
+        if (penaltyOrPoint == 1) //Legal set
+        {
+            point();
+        }
+        else if (penaltyOrPoint == 0) //Illegal set
+        {
+            penalty();
+        }
+        else //The claim was dropped by the dealer
+        {
+            onFreeze = false;
+        }
+    }
+
+    /**
+     * Displays the remaining freeze time (in whole seconds) and waits for the next second, or ends the freeze.
+     */
+    private void freezeTick() {
+        long left = freezeUntil - env.clock.currentTimeMillis();
+        if (left <= 0) {
+            freezeUntil = 0;
+            env.ui.setFreeze(id, 0);
+            wakeComputer();
+            return;
+        }
+        long shown = (left + 999) / 1000 * 1000;
+        env.ui.setFreeze(id, shown);
+        waitForEvent(freezeUntil - shown + 1000);
+    }
+
+    /**
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread generates key presses at
+     * the configured rate: random keys, or the keys of a chosen set for smart computer players. If the queue of key
+     * presses is full, the thread waits until it is not full. The thread waits in the clock and is woken up by the
+     * player thread (when it takes a key, gets a verdict or ends a freeze) or by the dealer (when the cards are dealt).
      */
     private void createArtificialIntelligence() {
         // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = env.threads.start(() -> {
             env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate) {
-                // TODO implement player key press simulator
-                int random = (int) (Math.random() * 12);
-                synchronized (keyPresses)
-                {
-                    if(keyPresses.remainingCapacity() != 0)
-                    {
-                        Player.this.keyPressed(random);
+            long period = env.config.computerKeysPerSecond > 0 ? (long) (1e9 / env.config.computerKeysPerSecond) : 0;
+            long nextKey = env.clock.nanoTime();
+            try {
+                while (!terminate) {
+                    // keys are generated at a fixed rate (without catching up on keys that could not be generated)
+                    nextKey = Math.max(nextKey + period, env.clock.nanoTime());
+                    env.clock.sleepUntilNanos(nextKey);
+                    int slot = onFreeze || dealer.gameFreeze || freezeUntil > 0 ? -1 // key presses are ignored
+                            : env.config.smartComputerPlayers ? smartKey() : random.nextInt(env.config.tableSize);
+                    if (slot < 0) { // nothing to press now
+                        if (period == 0) // wait for the next event, or the reaction time of a smart player
+                            waitForComputerEvent(env.config.smartComputerPlayers && reactAt > env.clock.currentTimeMillis() ? reactAt : 0);
+                        continue;
                     }
+                    // the clock only knows about threads parked in it, so the thread does not block on the queue
+                    while (!keyPresses.offer(slot)) waitForComputerEvent(0);
+                    env.recorder.keyPressed(id, slot, dealer.phase());
+                    if (freezeUntil == 0) env.clock.unpark(playerThread);
                 }
-            }
+            } catch (InterruptedException ignored) {}
             env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+            env.clock.unregister();
+        }, "computer-" + id, env.clock);
+    }
+
+    /**
+     * Blocks the computer player thread until it is woken up (see wakeComputer) or the deadline passes.
+     *
+     * @param deadline - the time to wake up at (0 for none).
+     */
+    private void waitForComputerEvent(long deadline) throws InterruptedException {
+        if (deadline > 0)
+            env.clock.parkUntil(this, deadline);
+        else
+            env.clock.park(this);
+        if (Thread.interrupted()) throw new InterruptedException();
+    }
+
+    /**
+     * Wakes the computer player thread up (if any), after an event that may let it press a key.
+     */
+    private void wakeComputer() {
+        if (aiThread != null) env.clock.unpark(aiThread);
+    }
+
+    /**
+     * Called by the dealer once key presses are accepted again after the cards were dealt.
+     */
+    public void gameResumed() {
+        wakeComputer();
+    }
+
+    /**
+     * Picks the next key of a smart computer player: it removes its tokens that are not part of its target, then places
+     * tokens on the rest of the target. The target is picked (once the reaction time has passed) from the board
+     * analysis shared by all the players, so the sets on the table are only searched once per table version.
+     *
+     * @return - the slot to press, or -1 if the player should not press a key now.
+     */
+    private int smartKey() {
+        // keys are only pressed once the previous one was handled, so the tokens are up to date
+        if (freezeUntil > 0 || !keyPresses.isEmpty()) return -1;
+
+        BoardAnalysis analysis = table.analysis();
+        long now = env.clock.currentTimeMillis();
+        if (analysis.version != targetVersion) {
+            targetVersion = analysis.version;
+            reactAt = now + env.config.computerReactionMillis;
+            target = null;
+        }
+        if (now < reactAt) return -1;
+        if (target == null) target = chooseTarget(analysis);
+
+        for (int slot : tokens)
+            if (!contains(target, slot)) return slot;
+        for (int slot : target)
+            if (!tokens.contains(slot)) return slot;
+        target = null; // the claim was made, pick a new target if the table does not change
+        return -1;
+    }
+
+    /**
+     * Picks the slots a smart computer player will try to claim: a set on the table with probability of the configured
+     * skill, random cards otherwise.
+     *
+     * @param analysis - the analysis of the table.
+     * @return - the slots to claim.
+     */
+    private int[] chooseTarget(BoardAnalysis analysis) {
+        if (analysis.sets.length > 0 && random.nextDouble() < env.config.computerSkill)
+            return analysis.sets[random.nextInt(analysis.sets.length)];
+
+        int[] slots = analysis.occupied.clone();
+        int size = Math.min(3, slots.length);
+        for (int i = 0; i < size; ++i) {
+            int j = i + random.nextInt(slots.length - i);
+            int slot = slots[j];
+            slots[j] = slots[i];
+            slots[i] = slot;
+        }
+        return Arrays.copyOf(slots, size);
+    }
+
+    private static boolean contains(int[] slots, int slot) {
+        for (int s : slots)
+            if (s == slot) return true;
+        return false;
     }
 
     /**
@@ -220,7 +385,8 @@ public class Player implements Runnable {
     public void terminate() {
         // TODO implement
         terminate = true;
-        if (!human) {
+        env.clock.unpark(playerThread);
+        if (!human && aiThread != null) {
             aiThread.interrupt();
         }
     }
@@ -231,21 +397,25 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        if (!onFreeze && !dealer.gameFreeze)
-        {
-            try
-            {
-                synchronized (keyPresses)
-                {
-                    keyPresses.add(slot);
-                    keyPresses.notifyAll();
-                }
-            }
-            catch (IllegalStateException ignored) {}
-        }
+        // a frozen player handles its key presses once the freeze ends, there is no need to wake it up
+        if (onFreeze || dealer.gameFreeze || !keyPresses.offer(slot)) return;
+        env.recorder.keyPressed(id, slot, dealer.phase());
+        if (freezeUntil == 0) env.clock.unpark(playerThread);
     }
 
-
+    /**
+     * Presses a key recorded in a replayed game (see Replay). The key is queued even if the player is frozen, since it
+     * was accepted when the game was recorded. If the queue is full, the calling thread waits for room like a computer
+     * player does.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     */
+    public void replayKey(int slot) throws InterruptedException {
+        aiThread = Thread.currentThread(); // woken up when the player takes a key
+        while (!keyPresses.offer(slot)) waitForComputerEvent(0);
+        env.recorder.keyPressed(id, slot, dealer.phase());
+        if (freezeUntil == 0) env.clock.unpark(playerThread);
+    }
 
     /**
      * Award a point to a player and perform other related actions.
@@ -273,6 +443,17 @@ public class Player implements Runnable {
         setFreeze(env.config.penaltyFreezeMillis);
     }
 
+    /**
+     * Called by the dealer once the player's claim was checked. Wakes the player up.
+     *
+     * @param verdict - 1 for a legal set, 0 for an illegal set, -1 if the claim was dropped.
+     */
+    public void verdict(int verdict) {
+        penaltyOrPoint = verdict;
+        verdictReady = true;
+        env.clock.unpark(playerThread);
+    }
+
     public int score() {
         return score;
     }
@@ -294,18 +475,33 @@ public class Player implements Runnable {
         return playerThread;
     }
 
+    /**
+     * Freezes the player (its key presses are not handled) for the given time.
+     *
+     * @param freezeTime - the freeze time in milliseconds.
+     */
     public void setFreeze(long freezeTime) {
-        try
-        {
-            // left - second left to sleep
-            for (long left = freezeTime / 1000; left > 0; left--) {
-                env.ui.setFreeze(id, left * 1000);
-                Thread.sleep(1000);
-            }
-            env.ui.setFreeze(id, 0);
-            penaltyOrPoint = -1;
-        }
-        catch (InterruptedException ignored) {}
+        freezeUntil = env.clock.currentTimeMillis() + freezeTime;
+        env.journal.freeze(id, freezeTime);
+        if (Thread.currentThread() != playerThread) env.clock.unpark(playerThread);
+    }
+
+    /**
+     * Returns the number of times the player thread woke up.
+     */
+    public long wakeups() {
+        return wakeups;
+    }
+
+    /**
+     * Returns the CPU time used by the player thread so far.
+     *
+     * @return - the CPU time in nanoseconds, or -1 if not available.
+     */
+    public long cpuTimeNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (playerThread == null || !threads.isThreadCpuTimeSupported()) return -1;
+        return threads.getThreadCpuTime(playerThread.getId());
     }
 
     public List<Integer> getTokens() {
@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class keeps track of the cards that are still in play (in the deck or on the table) and tells whether a legal
+ * set can still be formed from them, without searching all the cards every time.
+ */
+public class SetOracle {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * True at card id iff the card is still in play.
+     */
+    private final boolean[] inPlay;
+
+    /**
+     * True iff the completing card of a pair can be computed (see Util.completeSet), in which case sets are counted.
+     */
+    private final boolean counting;
+
+    /**
+     * The number of legal sets formed by the cards in play (if counting).
+     */
+    private long sets;
+
+    /**
+     * True iff cards left play since hasSet last searched for a set (if not counting).
+     */
+    private boolean dirty = true;
+    private boolean hasSet;
+
+    /**
+     * The class constructor.
+     *
+     * @param env   - the environment object.
+     * @param cards - the cards in play.
+     */
+    public SetOracle(Env env, int[] cards) {
+        this.env = env;
+        inPlay = new boolean[env.config.deckSize];
+        for (int card : cards)
+            inPlay[card] = true;
+
+        counting = env.config.deckSize >= 2 && env.util.completeSet(0, 1) >= 0;
+        if (counting)
+            for (int a : cards)
+                for (int b : cards) {
+                    int c = b > a ? env.util.completeSet(a, b) : -1;
+                    if (c > b && inPlay[c]) ++sets; // count each set once, from its two lowest card ids
+                }
+    }
+
+    /**
+     * Called when a card leaves play (i.e. it was part of a legal set that was removed from the table).
+     *
+     * @param card - the card id.
+     *
+     * @post - hasSet() does not consider the card anymore.
+     */
+    public synchronized void remove(int card) {
+        if (!inPlay[card]) return;
+        inPlay[card] = false;
+        dirty = true;
+        if (!counting) return;
+
+        // every other pair of cards in play that completes the removed card is a set that is lost
+        for (int a = 0; a < inPlay.length; ++a) {
+            if (!inPlay[a]) continue;
+            int b = env.util.completeSet(card, a);
+            if (b > a && inPlay[b]) --sets;
+        }
+    }
+
+    /**
+     * @return - the number of legal sets formed by the cards in play, -1 if sets are not counted.
+     */
+    synchronized long setCount() {
+        return counting ? sets : -1;
+    }
+
+    /**
+     * Checks if a legal set can still be formed from the cards in play.
+     *
+     * @return - true iff there is a legal set in play.
+     */
+    public synchronized boolean hasSet() {
+        if (counting) return sets > 0;
+        if (dirty) {
+            List<Integer> cards = new ArrayList<>();
+            for (int card = 0; card < inPlay.length; ++card)
+                if (inPlay[card]) cards.add(card);
+            hasSet = false;
+            env.util.forEachSet(cards, set -> {
+                hasSet = true;
+                return false;
+            });
+            dirty = false;
+        }
+        return hasSet;
+    }
+}
@@ -2,11 +2,12 @@ package bguspl.set.ex;
 
 import bguspl.set.Env;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * This class contains the data that is visible to the player.
@@ -31,9 +32,24 @@ public class Table {
     protected final Integer[] cardToSlot; // slot per card (if any)
 
     /**
-     * Organizing the set send by FIFO
+     * The version of the table, increased whenever a card is placed or removed.
      */
-    protected Semaphore semaphore;
+    private long version;
+
+    /**
+     * The version of the table when the card in each slot was placed or removed.
+     */
+    private final long[] slotVersions;
+
+    /**
+     * The snapshot of the table published after the last change, read without locking the table.
+     */
+    private volatile TableSnapshot snapshot;
+
+    /**
+     * The legal sets currently on the table (sorted card ids), kept up to date by placeCard and removeCard.
+     */
+    private final List<int[]> sets;
 
     /**
      * Constructor for testing.
@@ -47,7 +63,11 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        this.semaphore = new Semaphore(1, true);
+        this.sets = new ArrayList<>();
+        this.slotVersions = new long[slotToCard.length];
+        List<Integer> cards = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+        env.util.forEachSet(cards, set -> sets.add(set.clone())); // index the cards already on the table
+        publish();
     }
 
     /**
@@ -64,13 +84,105 @@ public class Table {
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        TableSnapshot board = snapshot;
+        for (int i = 0; i < board.countSets(); ++i) {
+            int[] set = board.set(i);
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
-            List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
+            List<Integer> slots = Arrays.stream(set).mapToObj(board::slotOf).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
             System.out.println(sb.append("slots: ").append(slots).append(" features: ").append(Arrays.deepToString(features)));
-        });
+        }
+    }
+
+    /**
+     * Count the number of legal sets currently on the table.
+     *
+     * @return - the number of legal sets on the table.
+     */
+    public int countSets() {
+        return snapshot.countSets();
+    }
+
+    /**
+     * Returns the version of the table, which changes whenever a card is placed or removed.
+     *
+     * @return - the table version.
+     */
+    public long version() {
+        return snapshot.version;
+    }
+
+    /**
+     * Returns the snapshot of the table published after the last change. It is immutable, so it can be read without
+     * locking the table.
+     *
+     * @return - the current snapshot of the table.
+     */
+    public TableSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the version of the table when the card in the slot was placed or removed. It only changes when the card
+     * in the slot changes.
+     *
+     * @param slot - the slot.
+     * @return - the version of the slot.
+     */
+    public long slotVersion(int slot) {
+        return snapshot.slotVersion(slot);
+    }
+
+    /**
+     * Returns the analysis of the cards currently on the table. It is computed once per table version (except by
+     * threads racing on its first use), so all the computer players share it.
+     *
+     * @return - the analysis of the current table version.
+     */
+    public BoardAnalysis analysis() {
+        return snapshot.analysis();
+    }
+
+    /**
+     * Returns the legal sets currently on the table.
+     *
+     * @return - a copy of the list of sets, each one contains the sorted card ids of a legal set.
+     */
+    public List<int[]> sets() {
+        TableSnapshot board = snapshot;
+        return IntStream.range(0, board.countSets()).mapToObj(board::set).collect(Collectors.toList());
+    }
+
+    /**
+     * Publishes a snapshot of the table after a change.
+     */
+    private void publish() {
+        int[] cards = new int[slotToCard.length];
+        for (int slot = 0; slot < cards.length; ++slot)
+            cards[slot] = slotToCard[slot] == null ? -1 : slotToCard[slot];
+        snapshot = new TableSnapshot(version, cards, slotVersions.clone(), sets.toArray(new int[0][]));
+    }
+
+    /**
+     * Adds the legal sets formed by a newly placed card and the cards already on the table to the set index.
+     * @param card - the card that was placed.
+     */
+    private void addSetsOf(int card) {
+        for (Integer other : slotToCard) {
+            if (other == null || other == card) continue;
+            int third = env.util.completeSet(card, other);
+            if (third < 0) { // the completing card cannot be computed, search the table for sets containing the card
+                List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+                env.util.forEachSetWith(deck, card, set -> sets.add(set.clone()));
+                return;
+            }
+            // each set is found from both of the other cards, add it only once
+            if (third > other && cardToSlot[third] != null) {
+                int[] set = {card, other, third};
+                Arrays.sort(set);
+                sets.add(set);
+            }
+        }
     }
 
     /**
@@ -94,12 +206,12 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public synchronized void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        addSetsOf(card);
+        slotVersions[slot] = ++version;
+        publish();
+        env.journal.cardPlaced(slot, card);
 
         // TODO implement
         env.ui.placeCard(card, slot);
@@ -110,16 +222,34 @@ public class Table {
      * @param slot - the slot from which to remove the card.
      */
     public synchronized void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {}
-
         // TODO implement
-            int card = slotToCard[slot];
-            slotToCard[slot] = null;
-            cardToSlot[card] = null;
-            env.ui.removeCard(slot);
-            env.ui.removeTokens(slot);
+        detachCard(slot);
+        publish();
+    }
+
+    /**
+     * Removes the cards from the given grid slots on the table, as a single change of the table.
+     * @param slots - the slots from which to remove the cards.
+     */
+    public synchronized void removeCards(int[] slots) {
+        for (int slot : slots)
+            detachCard(slot);
+        publish();
+    }
+
+    /**
+     * Removes a card from a grid slot, without publishing the change.
+     * @param slot - the slot from which to remove the card.
+     */
+    private void detachCard(int slot) {
+        int card = slotToCard[slot];
+        slotToCard[slot] = null;
+        cardToSlot[card] = null;
+        sets.removeIf(set -> Arrays.stream(set).anyMatch(c -> c == card));
+        slotVersions[slot] = ++version;
+        env.journal.cardRemoved(slot, card);
+        env.ui.removeCard(slot);
+        env.ui.removeTokens(slot);
     }
 
     /**
@@ -129,6 +259,7 @@ public class Table {
      */
     public synchronized void placeToken(int player, int slot) {
         // TODO implement
+        env.journal.tokenPlaced(player, slot);
         env.ui.placeToken(player, slot);
     }
 
@@ -140,6 +271,7 @@ public class Table {
      */
     public synchronized boolean removeToken(int player, int slot) {
         // TODO implement
+        env.journal.tokenRemoved(player, slot);
         env.ui.removeToken(player, slot);
         return true;
     }
@@ -0,0 +1,128 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+
+/**
+ * This class holds an immutable view of the table at a given version, published by the table after each change. It can
+ * be read by any thread without locking the table.
+ */
+public class TableSnapshot {
+
+    /**
+     * The version of the table (see Table.version).
+     */
+    public final long version;
+
+    /**
+     * The card in each slot (-1 if none).
+     */
+    private final int[] cards;
+
+    /**
+     * The version of the table when the card in each slot was placed or removed (see Table.slotVersion).
+     */
+    private final long[] slotVersions;
+
+    /**
+     * The legal sets on the table (sorted card ids).
+     */
+    private final int[][] sets;
+
+    /**
+     * The analysis of this version of the table, computed on first use.
+     */
+    private volatile BoardAnalysis analysis;
+
+    /**
+     * The class constructor. The arrays are owned by the snapshot from now on.
+     *
+     * @param version      - the version of the table.
+     * @param cards        - the card in each slot (-1 if none).
+     * @param slotVersions - the version of each slot.
+     * @param sets         - the legal sets on the table.
+     */
+    public TableSnapshot(long version, int[] cards, long[] slotVersions, int[][] sets) {
+        this.version = version;
+        this.cards = cards;
+        this.slotVersions = slotVersions;
+        this.sets = sets;
+    }
+
+    /**
+     * @return - the number of slots of the table.
+     */
+    public int slots() {
+        return cards.length;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the card in the slot, or -1 if the slot is empty.
+     */
+    public int card(int slot) {
+        return cards[slot];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the slot the card is in, or -1 if the card is not on the table.
+     */
+    public int slotOf(int card) {
+        for (int slot = 0; slot < cards.length; ++slot)
+            if (cards[slot] == card) return slot;
+        return -1;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the version of the table when the card in the slot was placed or removed.
+     */
+    public long slotVersion(int slot) {
+        return slotVersions[slot];
+    }
+
+    /**
+     * @return - the number of cards on the table.
+     */
+    public int countCards() {
+        int count = 0;
+        for (int card : cards)
+            if (card >= 0) ++count;
+        return count;
+    }
+
+    /**
+     * @return - the number of legal sets on the table.
+     */
+    public int countSets() {
+        return sets.length;
+    }
+
+    /**
+     * @param i - the index of the set (less than countSets()).
+     * @return - a copy of the sorted card ids of the set.
+     */
+    public int[] set(int i) {
+        return sets[i].clone();
+    }
+
+    /**
+     * Returns the analysis of this version of the table, shared by all the threads reading it. It is computed on first
+     * use without locking: threads racing on the first use may each compute it, and they compute equal analyses.
+     *
+     * @return - the analysis.
+     */
+    public BoardAnalysis analysis() {
+        BoardAnalysis result = analysis;
+        if (result == null) {
+            int[][] setSlots = new int[sets.length][];
+            for (int i = 0; i < sets.length; ++i)
+                setSlots[i] = Arrays.stream(sets[i]).map(this::slotOf).toArray();
+            int[] occupied = new int[countCards()];
+            for (int slot = 0, i = 0; slot < cards.length; ++slot)
+                if (cards[slot] >= 0) occupied[i++] = slot;
+            analysis = result = new BoardAnalysis(version, setSlots, occupied);
+        }
+        return result;
+    }
+}
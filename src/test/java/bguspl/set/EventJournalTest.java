@@ -0,0 +1,96 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void close_WritesFixedWidthRecords() throws IOException {
+        Path file = dir.resolve("game.journal");
+        EventJournal journal = new EventJournal(Logger.getAnonymousLogger(), new VirtualClock(), file.toString(), 10, 2, 12);
+
+        journal.cardPlaced(3, 42);
+        journal.claim(1, new int[]{3, 4, 5});
+        journal.verdict(1, -1);
+        journal.close();
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(EventJournal.MAGIC, bytes.getInt(0));
+        assertEquals(5, bytes.getLong(8));
+        int first = EventJournal.HEADER_BYTES;
+        assertEquals(EventJournal.CARD_PLACED, bytes.get(first + 8));
+        assertEquals(-1, EventJournal.player(bytes, first));
+        assertEquals(3, EventJournal.slot(bytes, first));
+        assertEquals(42, bytes.getInt(first + 12));
+        int last = EventJournal.HEADER_BYTES + 4 * EventJournal.RECORD_BYTES;
+        assertEquals(EventJournal.VERDICT, bytes.get(last + 8));
+        assertEquals(1, EventJournal.player(bytes, last));
+        assertEquals(-1, EventJournal.slot(bytes, last));
+        assertEquals(-1, bytes.getInt(last + 12));
+    }
+
+    @Test
+    void write_KeepsLargePlayerIdsAndSlots() throws IOException {
+        Path file = dir.resolve("large.journal");
+        EventJournal journal = new EventJournal(Logger.getAnonymousLogger(), new VirtualClock(), file.toString(), 10,
+                EventJournal.MAX_PLAYER + 1, EventJournal.MAX_SLOT + 1);
+
+        journal.tokenPlaced(200, 300);
+        journal.tokenPlaced(EventJournal.MAX_PLAYER, EventJournal.MAX_SLOT);
+        journal.close();
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        int first = EventJournal.HEADER_BYTES;
+        assertEquals(200, EventJournal.player(bytes, first));
+        assertEquals(300, EventJournal.slot(bytes, first));
+        int second = first + EventJournal.RECORD_BYTES;
+        assertEquals(EventJournal.MAX_PLAYER, EventJournal.player(bytes, second));
+        assertEquals(EventJournal.MAX_SLOT, EventJournal.slot(bytes, second));
+    }
+
+    @Test
+    void tooManyPlayers_DoesNothing() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        EventJournal journal = new EventJournal(logger, new VirtualClock(), dir.resolve("big.journal").toString(), 10,
+                EventJournal.MAX_PLAYER + 2, 12);
+        assertFalse(journal.enabled());
+    }
+
+    @Test
+    void append_DropsEventsOnceFull() throws IOException {
+        Path file = dir.resolve("full.journal");
+        EventJournal journal = new EventJournal(Logger.getAnonymousLogger(), new VirtualClock(), file.toString(), 2, 2, 12);
+
+        journal.tokenPlaced(0, 1);
+        journal.claim(0, new int[]{1, 2, 3}); // does not fit, dropped as a whole
+        journal.tokenRemoved(0, 1); // dropped, the journal is full
+        journal.close();
+
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1, bytes.getLong(8));
+        assertEquals(EventJournal.TOKEN_PLACED, bytes.get(EventJournal.HEADER_BYTES + 8));
+        assertEquals(0, bytes.get(EventJournal.HEADER_BYTES + EventJournal.RECORD_BYTES + 8));
+    }
+
+    @Test
+    void noFile_DoesNothing() {
+        EventJournal journal = new EventJournal(Logger.getAnonymousLogger(), new VirtualClock(), "", 10, 2, 12);
+        assertFalse(journal.enabled());
+        journal.cardPlaced(0, 0);
+        journal.close();
+    }
+}
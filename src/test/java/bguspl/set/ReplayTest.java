@@ -0,0 +1,50 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayTest {
+
+    @Test
+    void replay_SameClaimsAndVerdictsAsTheRecordedGame(@TempDir Path dir) throws InterruptedException, IOException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "4");
+        properties.put("ComputerPlayerMode", "Random"); // claims on every reshuffle and at the same times
+        properties.put("Clock", "Virtual");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+        properties.put("Hints", "False");
+
+        Properties recorded = (Properties) properties.clone();
+        recorded.put("Seed", "5");
+        recorded.put("TurnTimeoutSeconds", "5");
+        recorded.put("PenaltyFreezeSeconds", "1");
+        recorded.put("RecordFile", dir.resolve("game.rec").toString());
+
+        RoomManager manager = new RoomManager(logger, 1);
+        manager.open(recorded);
+        manager.awaitIdle();
+        manager.shutdown();
+
+        // the game settings are taken from the recording
+        String recording = dir.resolve("game.rec.0").toString();
+        String replayed = Replay.replay(recording, properties, logger);
+
+        List<String> recordedOutputs = Replay.outputs(recording);
+        assertFalse(recordedOutputs.isEmpty());
+        assertEquals(recordedOutputs, Replay.outputs(replayed));
+    }
+}
@@ -0,0 +1,85 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomManagerTest {
+
+    RoomManager manager;
+    Properties properties;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        manager = new RoomManager(logger, 1);
+
+        properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("ComputerPlayerMode", "Smart");
+        properties.put("Clock", "Virtual");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("EndGamePauseSeconds", "0");
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        manager.shutdown();
+    }
+
+    @Test
+    void tryOpen_AdmissionLimit() throws InterruptedException {
+        Room room = manager.tryOpen(properties);
+        assertNotNull(room);
+        assertNull(manager.tryOpen(properties));
+
+        room.awaitFinished();
+        manager.awaitIdle();
+        assertNotNull(manager.tryOpen(properties));
+    }
+
+    @Test
+    void open_MetricsOfFinishedGames() throws InterruptedException {
+        manager.open(properties);
+        manager.open(properties);
+        manager.awaitIdle();
+
+        assertEquals(0, manager.openRooms());
+        assertEquals(2, manager.gamesFinished());
+        assertTrue(manager.setsFound() > 0);
+        assertTrue(manager.claimsChecked() >= manager.setsFound());
+        assertTrue(manager.playerCpuNanos() >= 0); // platform threads are measured
+    }
+
+    @Test
+    void open_EveryRoomRecordsToItsOwnFile(@TempDir Path dir) throws InterruptedException, IOException {
+        Path recording = dir.resolve("game.rec");
+        properties.put("RecordFile", recording.toString());
+        properties.put("Seed", "5");
+        manager.open(properties);
+        manager.open(properties);
+        manager.awaitIdle();
+
+        assertFalse(Files.exists(recording));
+        for (int room = 0; room < 2; ++room) {
+            List<String> lines = Files.readAllLines(Path.of(recording + "." + room), StandardCharsets.UTF_8);
+            assertEquals("seed 5", lines.get(0));
+            assertEquals(1, lines.stream().filter(line -> line.startsWith("seed")).count());
+            assertTrue(lines.get(lines.size() - 1).startsWith("E "));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserInterfaceAnimatorTest {
+
+    @Mock
+    UserInterface ui;
+
+    UserInterfaceAnimator animator;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0.05");
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        animator = new UserInterfaceAnimator(logger, new Config(logger, properties), ui);
+    }
+
+    @AfterEach
+    void tearDown() {
+        animator.dispose();
+    }
+
+    @Test
+    void placeCard_NeverWaitsForTheDisplay() {
+        long start = System.nanoTime();
+        for (int card = 0; card < 100; ++card)
+            animator.placeCard(card, card % 12);
+        assertTrue(System.nanoTime() - start < 1000000000L); // 100 delays would take 5 s
+
+        // the delays of the changes more than a table behind are skipped, the rest are shown in order
+        InOrder inOrder = inOrder(ui);
+        for (int card = 0; card < 100; ++card)
+            inOrder.verify(ui, timeout(3000)).placeCard(card, card % 12);
+    }
+
+    @Test
+    void placeToken_ShownAfterTheCard() {
+        animator.placeCard(7, 3);
+        animator.placeToken(1, 3);
+
+        InOrder inOrder = inOrder(ui);
+        inOrder.verify(ui, timeout(1000)).placeCard(7, 3);
+        inOrder.verify(ui, timeout(1000)).placeToken(1, 3);
+    }
+}
@@ -0,0 +1,323 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@ExtendWith(MockitoExtension.class)
+class UtilImplTest {
+
+    UtilImpl util;
+    Config config;
+    @Mock
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        config = new Config(logger, properties);
+        util = new UtilImpl(config);
+    }
+
+    @Test
+    void testSet_PrimitiveMatchesArray() {
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b)
+                for (int c = b + 1; c < config.deckSize; c += 7)
+                    assertEquals(util.testSet(new int[]{a, b, c}), util.testSet(a, b, c));
+    }
+
+    @Test
+    void testSet_MatchesReferenceForEveryTriple() {
+        // 4 features fit in one byte of a packed card, 5 features span two; 4 values are not validated bit-parallel
+        int[][] shapes = {{3, 4}, {3, 5}, {4, 3}};
+        for (int[] shape : shapes) {
+            Config shaped = config(shape[0], shape[1]);
+            UtilImpl shapedUtil = new UtilImpl(shaped);
+            int[] cards = new int[4];
+            for (int a = 0; a < shaped.deckSize; ++a)
+                for (int b = a + 1; b < shaped.deckSize; ++b)
+                    for (int c = b + 1; c < shaped.deckSize; ++c) {
+                        boolean expected = isSetReference(shaped, a, b, c);
+                        cards[0] = a;
+                        cards[1] = b;
+                        cards[2] = c;
+                        if (shapedUtil.testSet(a, b, c) != expected || shapedUtil.testSet(cards, 3) != expected)
+                            fail("cards " + a + " " + b + " " + c + " with " + shape[0] + " values per feature");
+                    }
+        }
+    }
+
+    @Test
+    void completeSet_MatchesReference() {
+        for (int featureCount : new int[]{4, 5, 6}) {
+            Config shaped = config(3, featureCount);
+            UtilImpl shapedUtil = new UtilImpl(shaped);
+            for (int a = 0; a < shaped.deckSize; ++a)
+                for (int b = 0; b < shaped.deckSize; ++b) {
+                    if (a == b) continue;
+                    int c = shapedUtil.completeSet(a, b);
+                    assertEquals(completeSetReference(shaped, a, b), c, "cards " + a + " " + b);
+                    assertTrue(isSetReference(shaped, a, b, c));
+                }
+        }
+        assertEquals(-1, new UtilImpl(config(4, 3)).completeSet(0, 1));
+    }
+
+    @Test
+    void testSet_BufferIgnoresTrailingCards() {
+        int[] buffer = {0, 1, 2, 5};
+
+        assertTrue(util.testSet(buffer, 3));
+        assertFalse(util.testSet(buffer, 4));
+        assertFalse(util.testSet(new int[]{0, 1, 5}));
+    }
+
+    @Test
+    void testSet_DoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        long threadId = Thread.currentThread().getId();
+        int[] buffer = new int[3];
+        int legal = 0;
+
+        // warm up once so class loading and lazy initialization are not measured
+        legal += countLegal(buffer);
+        long before = threads.getThreadAllocatedBytes(threadId);
+        legal += countLegal(buffer);
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        assertTrue(legal > 0);
+        assertEquals(0, after - before);
+    }
+
+    private Config config(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(logger, properties);
+    }
+
+    /**
+     * A plain reference for testing three cards: compares every feature of the cards, decoded from their ids.
+     */
+    private static boolean isSetReference(Config config, int a, int b, int c) {
+        for (int i = 0; i < config.featureCount; ++i) {
+            int x = a % config.featureSize, y = b % config.featureSize, z = c % config.featureSize;
+            boolean sameSame = x == y && y == z;
+            boolean butDifferent = x != y && x != z && y != z;
+            if (!sameSame && !butDifferent) return false;
+            a /= config.featureSize;
+            b /= config.featureSize;
+            c /= config.featureSize;
+        }
+        return true;
+    }
+
+    /**
+     * A plain reference for completeSet (3 values per feature): the same value, or the remaining one.
+     */
+    private static int completeSetReference(Config config, int a, int b) {
+        int card = 0;
+        for (int i = 0, weight = 1; i < config.featureCount; ++i, weight *= 3) {
+            int x = a % 3, y = b % 3;
+            card += (x == y ? x : 3 - x - y) * weight;
+            a /= 3;
+            b /= 3;
+        }
+        return card;
+    }
+
+    private int countLegal(int[] buffer) {
+        int legal = 0;
+        for (int a = 0; a < config.deckSize; ++a)
+            for (int b = a + 1; b < config.deckSize; ++b) {
+                int c = (a + b) % config.deckSize;
+                if (util.testSet(a, b, c)) ++legal;
+                buffer[0] = a;
+                buffer[1] = b;
+                buffer[2] = c;
+                if (util.testSet(buffer, 3)) ++legal;
+            }
+        return legal;
+    }
+
+    @Test
+    void findSets_MatchesBruteForce() {
+        List<Integer> deck = deck(config, new Random(1), 30);
+        Set<String> expected = bruteForceSets(config, deck);
+        assertFalse(expected.isEmpty());
+
+        List<String> found = new ArrayList<>();
+        for (int[] set : util.findSets(deck, Integer.MAX_VALUE))
+            found.add(Arrays.toString(set));
+        assertEquals(expected.size(), found.size()); // no duplicates
+        assertEquals(expected, new HashSet<>(found));
+
+        List<String> visited = new ArrayList<>();
+        util.forEachSet(deck, set -> visited.add(Arrays.toString(set)));
+        assertEquals(expected.size(), visited.size());
+        assertEquals(expected, new HashSet<>(visited));
+    }
+
+    @Test
+    void findSets_RespectsCount() {
+        List<Integer> deck = deck(config, new Random(2), config.deckSize);
+        Set<String> expected = bruteForceSets(config, deck);
+
+        List<int[]> sets = util.findSets(deck, 5);
+        assertEquals(5, sets.size());
+        for (int[] set : sets)
+            assertTrue(expected.contains(Arrays.toString(set)));
+
+        int[] visits = new int[1];
+        util.forEachSet(deck, set -> ++visits[0] < 3);
+        assertEquals(3, visits[0]);
+    }
+
+    @Test
+    void forEachSet_PrunedSearchMatchesBruteForce() {
+        // {values per feature, features, cards in the deck}
+        int[][] shapes = {{4, 3, 64}, {4, 4, 40}, {5, 2, 25}, {5, 3, 40}};
+        for (int[] shape : shapes) {
+            Config shaped = config(shape[0], shape[1]);
+            UtilImpl shapedUtil = new UtilImpl(shaped);
+            List<Integer> deck = deck(shaped, new Random(shape[0] * 10 + shape[1]), shape[2]);
+            Set<String> expected = bruteForceSets(shaped, deck);
+            assertFalse(expected.isEmpty());
+
+            List<String> visited = new ArrayList<>();
+            shapedUtil.forEachSet(deck, set -> visited.add(Arrays.toString(set)));
+            assertEquals(expected.size(), visited.size(), "no duplicates with " + shape[0] + " values per feature");
+            assertEquals(expected, new HashSet<>(visited));
+
+            int card = deck.get(0);
+            Set<String> expectedWith = new HashSet<>();
+            for (String set : expected)
+                if (Arrays.asList(set.substring(1, set.length() - 1).split(", ")).contains(Integer.toString(card)))
+                    expectedWith.add(set);
+            List<String> visitedWith = new ArrayList<>();
+            shapedUtil.forEachSetWith(deck, card, set -> visitedWith.add(Arrays.toString(set)));
+            assertEquals(expectedWith.size(), visitedWith.size());
+            assertEquals(expectedWith, new HashSet<>(visitedWith));
+        }
+    }
+
+    @Test
+    void forEachSetWith_CardNotInTheDeck() {
+        List<Integer> deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card)
+            deck.add(card);
+        int missing = deck.remove(deck.size() - 1);
+        List<int[]> visited = new ArrayList<>();
+        util.forEachSetWith(deck, missing, visited::add);
+        assertTrue(visited.isEmpty());
+
+        util.forEachSetWith(new ArrayList<>(), 0, visited::add);
+        assertTrue(visited.isEmpty());
+    }
+
+    @Test
+    void findSets_ParallelMatchesSequential() {
+        Config large = config(3, 6);
+        UtilImpl largeUtil = new UtilImpl(large);
+        int[] cards = new int[large.deckSize];
+        List<Integer> deck = new ArrayList<>();
+        for (int card = 0; card < cards.length; ++card) {
+            cards[card] = card;
+            deck.add(card);
+        }
+        Set<String> expected = new HashSet<>();
+        largeUtil.forEachSet(deck, set -> expected.add(Arrays.toString(set)));
+        assertEquals(large.deckSize * (large.deckSize - 1) / 6, expected.size());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<String> found = new ArrayList<>();
+            for (int[] set : largeUtil.findSetsInParallel(cards, Integer.MAX_VALUE, pool))
+                found.add(Arrays.toString(set));
+            assertEquals(expected.size(), found.size()); // no duplicates
+            assertEquals(expected, new HashSet<>(found));
+
+            List<int[]> limited = largeUtil.findSetsInParallel(cards, 100, pool);
+            assertEquals(100, limited.size());
+            for (int[] set : limited)
+                assertTrue(expected.contains(Arrays.toString(set)));
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(largeUtil.findSets(deck, 0).isEmpty());
+        assertTrue(util.findSets(deck(config, new Random(3), config.deckSize), 0).isEmpty());
+    }
+
+    private static List<Integer> deck(Config config, Random random, int size) {
+        List<Integer> deck = new ArrayList<>();
+        for (int card = 0; card < config.deckSize; ++card)
+            deck.add(card);
+        Collections.shuffle(deck, random);
+        return new ArrayList<>(deck.subList(0, size));
+    }
+
+    /**
+     * Finds the sets in a deck by testing every combination of config.featureSize cards with isSetReference.
+     */
+    private static Set<String> bruteForceSets(Config config, List<Integer> deck) {
+        Set<String> sets = new HashSet<>();
+        int[] combination = new int[config.featureSize];
+        collectSets(config, deck, combination, 0, 0, sets);
+        return sets;
+    }
+
+    private static void collectSets(Config config, List<Integer> deck, int[] combination, int depth, int from,
+                                    Set<String> sets) {
+        if (depth == combination.length) {
+            int[] cards = combination.clone();
+            Arrays.sort(cards);
+            if (isSetReference(config, cards)) assertTrue(sets.add(Arrays.toString(cards)));
+            return;
+        }
+        for (int i = from; i < deck.size(); ++i) {
+            combination[depth] = deck.get(i);
+            collectSets(config, deck, combination, depth + 1, i + 1, sets);
+        }
+    }
+
+    /**
+     * A plain reference for testSet: decodes every feature of every card from its id, one feature at a time.
+     */
+    private static boolean isSetReference(Config config, int[] cards) {
+        int[] ids = cards.clone();
+        for (int i = 0; i < config.featureCount; ++i) {
+            Set<Integer> values = new HashSet<>();
+            for (int j = 0; j < ids.length; ++j) {
+                values.add(ids[j] % config.featureSize);
+                ids[j] /= config.featureSize;
+            }
+            if (values.size() != 1 && values.size() != cards.length) return false;
+        }
+        return true;
+    }
+}
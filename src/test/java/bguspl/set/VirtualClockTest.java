@@ -0,0 +1,69 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualClockTest {
+
+    VirtualClock clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock();
+        clock.register(Thread.currentThread());
+    }
+
+    @Test
+    void sleep_AdvancesTimeWithoutWaiting() throws InterruptedException {
+        long realStart = System.nanoTime();
+        long start = clock.currentTimeMillis();
+
+        clock.sleep(60000);
+
+        assertEquals(start + 60000, clock.currentTimeMillis());
+        assertTrue(System.nanoTime() - realStart < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    @Test
+    void parkUntil_WaitsForTheRunningThreads() throws InterruptedException {
+        Thread other = new Thread(() -> {
+            try {
+                clock.sleep(1000);
+            } catch (InterruptedException ignored) {}
+            clock.unregister();
+        });
+        clock.register(other);
+        other.start();
+
+        clock.sleep(3000); // the other thread wakes up first, at 1000
+        other.join();
+        assertEquals(3000000000L, clock.nanoTime());
+    }
+
+    @Test
+    void unpark_BeforeParkReturnsAtOnce() {
+        clock.unpark(Thread.currentThread());
+        clock.park(this);
+        assertEquals(0, clock.nanoTime());
+    }
+
+    @Test
+    void settle_WaitsWithoutAdvancingTime() throws InterruptedException {
+        boolean[] ran = new boolean[1];
+        Thread other = new Thread(() -> {
+            ran[0] = true;
+            clock.unregister();
+        });
+        clock.register(other);
+        other.start();
+
+        clock.settle(); // returns once the other thread stopped running, at the same time
+        other.join();
+        assertTrue(ran[0]);
+        assertEquals(0, clock.nanoTime());
+    }
+}
@@ -9,15 +9,18 @@ import bguspl.set.ex.TableTest.MockLogger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestClassOrder;
+import org.mockito.ArgumentCaptor;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.booleanThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 import bguspl.set.*;;
 
@@ -84,4 +87,191 @@ class DealerTest {
             assertNull(slotToCard[i]);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A dealer of a 3x4 table with real set checks, in simulated time, whose players are mocks (to see the verdicts).
+     */
+    private static class ClaimFixture {
+        final Env env;
+        final Table table;
+        final Player[] players = new Player[3];
+        final Dealer dealer;
+
+        ClaimFixture() {
+            Properties properties = new Properties();
+            properties.put("Clock", "Virtual");
+            properties.put("HumanPlayers", "3");
+            properties.put("TableDelaySeconds", "0");
+            MockLogger logger = new MockLogger();
+            Config config = new Config(logger, properties);
+            env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+            table = spy(new Table(env));
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = mock(Player.class);
+            dealer.placeCardsOnTableForTests();
+        }
+
+        /**
+         * @return - the slots of disjoint legal sets on the table.
+         */
+        List<int[]> disjointSets() {
+            List<int[]> sets = new LinkedList<>();
+            boolean[] used = new boolean[env.config.tableSize];
+            TableSnapshot board = table.snapshot();
+            for (int k = 0; k < board.countSets(); k++) {
+                int[] cards = board.set(k);
+                int[] slots = new int[cards.length];
+                boolean free = true;
+                for (int i = 0; i < cards.length; i++) {
+                    slots[i] = board.slotOf(cards[i]);
+                    free &= !used[slots[i]];
+                }
+                if (!free) continue;
+                for (int slot : slots) used[slot] = true;
+                sets.add(slots);
+            }
+            return sets;
+        }
+
+        Claim claim(int player, int[] slots) {
+            TableSnapshot board = table.snapshot();
+            long[] versions = new long[slots.length];
+            for (int i = 0; i < slots.length; i++)
+                versions[i] = board.slotVersion(slots[i]);
+            return new Claim(player, slots, versions);
+        }
+    }
+
+    @Test
+    void checkClaims_LegalSetsRemovedInOneChange() {
+        ClaimFixture fixture = new ClaimFixture();
+        List<int[]> sets = fixture.disjointSets();
+        assertTrue(sets.size() >= 2);
+
+        fixture.dealer.submitClaim(fixture.claim(0, sets.get(0)));
+        fixture.dealer.submitClaim(fixture.claim(1, sets.get(1)));
+        fixture.dealer.checkClaimsForTests();
+
+        verify(fixture.players[0]).verdict(1);
+        verify(fixture.players[1]).verdict(1);
+        verify(fixture.table, times(1)).removeCards(any());
+        verify(fixture.table, never()).removeCard(anyInt());
+        for (int k = 0; k < 2; k++)
+            for (int slot : sets.get(k))
+                assertTrue(fixture.table.snapshot().card(slot) < 0);
+        assertEquals(2, fixture.dealer.setsFound());
+        assertEquals(2, fixture.dealer.claimsChecked());
+    }
+
+    @Test
+    void checkClaims_OverlappingClaimOfTheHigherPlayerIdDropped() {
+        ClaimFixture fixture = new ClaimFixture();
+        int[] set = fixture.disjointSets().get(0);
+
+        // both claims arrive at the same (simulated) time: the lower player id is checked first
+        fixture.dealer.submitClaim(fixture.claim(2, set));
+        fixture.dealer.submitClaim(fixture.claim(1, set));
+        fixture.dealer.checkClaimsForTests();
+
+        verify(fixture.players[1]).verdict(1);
+        verify(fixture.players[2]).verdict(-1);
+        assertEquals(1, fixture.dealer.claimsChecked());
+    }
+
+    @Test
+    void checkClaims_OverlappingClaimThatArrivedLaterDropped() throws InterruptedException {
+        ClaimFixture fixture = new ClaimFixture();
+        int[] set = fixture.disjointSets().get(0);
+
+        fixture.env.clock.register(Thread.currentThread());
+        fixture.dealer.submitClaim(fixture.claim(2, set));
+        fixture.env.clock.sleep(1); // the only registered thread, the time jumps forward
+        fixture.dealer.submitClaim(fixture.claim(1, set));
+        fixture.env.clock.unregister();
+        fixture.dealer.checkClaimsForTests();
+
+        verify(fixture.players[2]).verdict(1);
+        verify(fixture.players[1]).verdict(-1);
+    }
+
+    @Test
+    void checkClaims_ClaimOfAChangedSlotDropped() {
+        ClaimFixture fixture = new ClaimFixture();
+        int[] set = fixture.disjointSets().get(0);
+        Claim claim = fixture.claim(0, set);
+
+        // the card of a claimed slot is replaced (by the same card) after the claim was made
+        int card = fixture.table.snapshot().card(set[0]);
+        fixture.table.removeCard(set[0]);
+        fixture.table.placeCard(card, set[0]);
+        fixture.dealer.submitClaim(claim);
+        fixture.dealer.checkClaimsForTests();
+
+        verify(fixture.players[0]).verdict(-1);
+        verify(fixture.table, never()).removeCards(any());
+        assertEquals(0, fixture.dealer.claimsChecked());
+    }
+
+    @Test
+    void checkClaims_IllegalSetPenalized() {
+        ClaimFixture fixture = new ClaimFixture();
+        TableSnapshot board = fixture.table.snapshot();
+        int[] illegal = null;
+        for (int a = 0; a < 12 && illegal == null; a++)
+            for (int b = a + 1; b < 12 && illegal == null; b++)
+                for (int c = b + 1; c < 12 && illegal == null; c++)
+                    if (!fixture.env.util.testSet(new int[]{board.card(a), board.card(b), board.card(c)}))
+                        illegal = new int[]{a, b, c};
+        assertNotNull(illegal);
+
+        fixture.dealer.submitClaim(fixture.claim(0, illegal));
+        fixture.dealer.checkClaimsForTests();
+
+        verify(fixture.players[0]).verdict(0);
+        verify(fixture.table, never()).removeCards(any());
+        assertEquals(1, fixture.dealer.claimsChecked());
+        assertEquals(0, fixture.dealer.setsFound());
+    }
+
+    @Test
+    void run_CountdownShownOnlyAtItsTicks() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("Clock", "Virtual");
+        properties.put("HumanPlayers", "0");
+        properties.put("Seed", "1");
+        properties.put("TurnTimeoutSeconds", "10");
+        properties.put("TurnTimeoutWarningSeconds", "3");
+        properties.put("DisplayTickSeconds", "1");
+        properties.put("WarningDisplayTickSeconds", "0.5");
+        properties.put("EndGamePauseSeconds", "0");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        UserInterface ui = mock(UserInterface.class);
+        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Dealer dealer = new Dealer(env, new Table(env), new Player[0]);
+
+        Thread dealerThread = new Thread(dealer);
+        env.clock.register(dealerThread);
+        env.clock.register(Thread.currentThread());
+        dealerThread.start();
+        env.clock.sleep(9999); // within the first turn
+        dealer.terminate();
+        env.clock.unregister();
+        dealerThread.join();
+
+        // the dealer wakes up for the display ticks only: whole seconds, then half seconds during the warning
+        ArgumentCaptor<Long> millis = ArgumentCaptor.forClass(Long.class);
+        ArgumentCaptor<Boolean> warn = ArgumentCaptor.forClass(Boolean.class);
+        verify(ui, atLeastOnce()).setCountdown(millis.capture(), warn.capture());
+        List<Long> expected = Arrays.asList(10000L, 9000L, 8000L, 7000L, 6000L, 5000L, 4000L, 3000L, 2500L, 2000L,
+                1500L, 1000L, 500L);
+        List<Long> shown = millis.getAllValues();
+        assertTrue(shown.size() >= expected.size());
+        assertEquals(expected, shown.subList(0, expected.size()));
+        assertTrue(shown.size() <= expected.size() + 1); // the timer is reset once more when the dealer stops
+        List<Boolean> warned = warn.getAllValues();
+        for (int i = 0; i < expected.size(); ++i)
+            assertEquals(expected.get(i) <= 3000, warned.get(i));
+    }
+}
@@ -0,0 +1,54 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeckTest {
+
+    Deck deck;
+
+    @BeforeEach
+    void setUp() {
+        deck = new Deck(81, 42);
+    }
+
+    @Test
+    void deal_InOrderUntilEmpty() {
+        for (int card = 0; card < 81; ++card) {
+            assertEquals(81 - card, deck.size());
+            assertEquals(card, deck.deal());
+        }
+        assertTrue(deck.isEmpty());
+    }
+
+    @Test
+    void add_ReturnsDealtCards() {
+        int first = deck.deal();
+        int second = deck.deal();
+        deck.add(second);
+        deck.add(first);
+
+        assertEquals(81, deck.size());
+        assertEquals(first, deck.deal());
+        assertEquals(second, deck.deal());
+    }
+
+    @Test
+    void shuffle_SameSeedSamePermutation() {
+        deck.deal();
+        deck.shuffle();
+        Deck other = new Deck(81, 42);
+        other.deal();
+        other.shuffle();
+
+        int[] cards = deck.toArray();
+        assertArrayEquals(cards, other.toArray());
+        Arrays.sort(cards);
+        for (int i = 0; i < cards.length; ++i)
+            assertEquals(i + 1, cards[i]);
+    }
+}
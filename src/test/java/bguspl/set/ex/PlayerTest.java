@@ -4,17 +4,22 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -93,7 +98,41 @@ class PlayerTest {
         assertNotEquals(expected, player.getTerminate());
     }
 
-
-
-
-}
\ No newline at end of file
+    @Test
+    void run_WakesUpOnlyForEvents() throws InterruptedException {
+        Properties properties = new Properties();
+        properties.put("Clock", "Virtual");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "2");
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        Table realTable = new Table(env);
+        for (int slot = 0; slot < 3; ++slot)
+            realTable.placeCard(slot, slot);
+        Player human = new Player(env, dealer, realTable, 0, true);
+
+        Thread playerThread = new Thread(human);
+        env.clock.register(playerThread);
+        env.clock.register(Thread.currentThread());
+        playerThread.start();
+        env.clock.sleep(60000); // a polling player would wake up all the time
+        human.keyPressed(0);
+        human.keyPressed(1);
+        human.keyPressed(2);
+        env.clock.sleep(1000);
+        verify(dealer).submitClaim(any(Claim.class));
+        human.verdict(1);
+        env.clock.sleep(5000);
+        human.terminate();
+        env.clock.unregister();
+        playerThread.join();
+
+        assertEquals(1, human.score());
+        InOrder inOrder = inOrder(ui);
+        inOrder.verify(ui).setFreeze(0, 2000);
+        inOrder.verify(ui).setFreeze(0, 1000);
+        inOrder.verify(ui).setFreeze(0, 0);
+        // at most one per key press, the verdict, the two freeze ticks and the termination
+        assertTrue(human.wakeups() <= 7, "wakeups: " + human.wakeups());
+    }
+}
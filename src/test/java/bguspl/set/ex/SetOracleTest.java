@@ -0,0 +1,74 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import bguspl.set.ex.TableTest.MockLogger;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetOracleTest {
+
+    private static Env env(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+    }
+
+    /**
+     * Removes the cards one by one in a random order, and checks the oracle against a search of the cards left.
+     */
+    private static void checkRemovals(Env env, long seed, boolean counting) {
+        List<Integer> cards = new ArrayList<>();
+        IntStream.range(0, env.config.deckSize).forEach(cards::add);
+        SetOracle oracle = new SetOracle(env, cards.stream().mapToInt(Integer::intValue).toArray());
+        Collections.shuffle(cards, new Random(seed));
+
+        while (true) {
+            List<int[]> sets = env.util.findSets(cards, Integer.MAX_VALUE);
+            assertEquals(!sets.isEmpty(), oracle.hasSet(), cards.size() + " cards left");
+            if (counting) assertEquals(sets.size(), oracle.setCount(), cards.size() + " cards left");
+            else assertEquals(-1, oracle.setCount());
+            if (cards.isEmpty()) break;
+            oracle.remove(cards.remove(cards.size() - 1));
+        }
+    }
+
+    @Test
+    void remove_CountMatchesFindSets() {
+        for (int featureCount = 2; featureCount <= 4; ++featureCount)
+            for (long seed = 0; seed < 3; ++seed)
+                checkRemovals(env(3, featureCount), seed, true);
+    }
+
+    @Test
+    void remove_HasSetMatchesFindSetsWithoutCounting() {
+        for (long seed = 0; seed < 3; ++seed) {
+            checkRemovals(env(4, 2), seed, false);
+            checkRemovals(env(4, 3), seed, false);
+        }
+    }
+
+    @Test
+    void remove_TwiceChangesNothing() {
+        Env env = env(3, 3);
+        SetOracle oracle = new SetOracle(env, IntStream.range(0, env.config.deckSize).toArray());
+        long sets = oracle.setCount();
+        oracle.remove(0);
+        long left = oracle.setCount();
+        assertTrue(left < sets);
+        oracle.remove(0);
+        assertEquals(left, oracle.setCount());
+    }
+}
@@ -4,9 +4,11 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
@@ -18,6 +20,7 @@ class TableTest {
     Table table;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
+    private Env env;
 
     @BeforeEach
     void setUp() {
@@ -35,7 +38,7 @@ class TableTest {
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
-        Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
+        env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
     }
 
@@ -110,6 +113,120 @@ class TableTest {
         assertNull(slotToCard[slot]);
     }
 
+    @Test
+    void countSets_UpdatedByPlaceAndRemove() {
+        Env utilEnv = new Env(env.logger, env.config, env.ui, new UtilImpl(env.config));
+        table = new Table(utilEnv, slotToCard, cardToSlot);
+
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(5, 3);
+        assertEquals(0, table.countSets());
+
+        table.placeCard(2, 2);
+        assertEquals(1, table.countSets());
+        assertArrayEquals(new int[]{0, 1, 2}, table.sets().get(0));
+
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+    }
+
+    @Test
+    void countSets_IndexesCardsGivenToTheConstructor() {
+        slotToCard[0] = 0;
+        slotToCard[1] = 1;
+        slotToCard[2] = 2;
+        cardToSlot[0] = 0;
+        cardToSlot[1] = 1;
+        cardToSlot[2] = 2;
+        table = new Table(new Env(env.logger, env.config, env.ui, new UtilImpl(env.config)), slotToCard, cardToSlot);
+
+        assertEquals(1, table.countSets());
+        table.placeCard(5, 3);
+        assertEquals(1, table.countSets());
+    }
+
+    @Test
+    void countSets_UpdatedForFourCardSets() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "2");
+        Config config = new Config(env.logger, properties);
+        Env utilEnv = new Env(env.logger, config, env.ui, new UtilImpl(config));
+        table = new Table(utilEnv, new Integer[config.tableSize], new Integer[config.deckSize]);
+
+        // cards 0..3 share feature 1 and differ in feature 2, and so do cards 4..7
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        table.placeCard(4, 3);
+        assertEquals(0, table.countSets());
+        table.placeCard(3, 4);
+        assertEquals(1, table.countSets());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, table.sets().get(0));
+        table.placeCard(8, 5); // 0, 4, 8 share feature 2 but no fourth card completes them
+        assertEquals(1, table.countSets());
+
+        table.removeCard(1);
+        assertEquals(0, table.countSets());
+    }
+
+    @Test
+    void analysis_SharedPerVersion() {
+        Env utilEnv = new Env(env.logger, env.config, env.ui, new UtilImpl(env.config));
+        table = new Table(utilEnv, slotToCard, cardToSlot);
+
+        table.placeCard(0, 3);
+        table.placeCard(1, 1);
+        table.placeCard(2, 2);
+        BoardAnalysis analysis = table.analysis();
+        assertSame(analysis, table.analysis());
+        assertArrayEquals(new int[]{1, 2, 3}, analysis.occupied);
+        assertEquals(1, analysis.sets.length);
+        assertArrayEquals(new int[]{3, 1, 2}, analysis.sets[0]);
+
+        table.removeCard(2);
+        assertNotSame(analysis, table.analysis());
+        assertEquals(0, table.analysis().sets.length);
+    }
+
+    @Test
+    void slotVersion_ChangesOnlyWithTheSlot() {
+        table.placeCard(8, 0);
+        table.placeCard(9, 1);
+        long first = table.slotVersion(0);
+        long second = table.slotVersion(1);
+        assertNotEquals(first, second);
+
+        table.placeCard(10, 2);
+        table.removeCards(new int[]{1, 2});
+        assertEquals(first, table.slotVersion(0));
+        assertNotEquals(second, table.slotVersion(1));
+        assertNull(slotToCard[1]);
+        assertNull(slotToCard[2]);
+        assertEquals(8, slotToCard[0]);
+    }
+
+    @Test
+    void snapshot_UnchangedByLaterChanges() {
+        table.placeCard(8, 2);
+        TableSnapshot before = table.snapshot();
+
+        table.removeCard(2);
+        table.placeCard(9, 3);
+        assertEquals(8, before.card(2));
+        assertEquals(-1, before.card(3));
+        assertEquals(1, before.countCards());
+
+        TableSnapshot after = table.snapshot();
+        assertTrue(after.version > before.version);
+        assertEquals(-1, after.card(2));
+        assertEquals(9, after.card(3));
+        assertEquals(3, after.slotOf(9));
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -153,11 +270,29 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public boolean testSet(int[] cards, int length) {
+            return false;
+        }
+
+        @Override
+        public boolean testSet(int first, int second, int third) {
+            return false;
+        }
+
+        @Override
+        public int completeSet(int first, int second) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
-            return null;
+            return new LinkedList<>();
         }
 
+        @Override
+        public void forEachSet(List<Integer> deck, SetVisitor visitor) {}
+
         @Override
         public void spin() {}
     }